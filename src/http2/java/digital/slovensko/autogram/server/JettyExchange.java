@@ -0,0 +1,250 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.io.Content;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.Callback;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HTTP/1.1 or HTTP/2 exchange of the Jetty transport seen as a JDK HTTP server exchange.
+ *
+ * Jetty reads and writes the bodies without blocking a thread, the handler sees them as streams.
+ * As in the JDK HTTP server, the exchange ends when it or its response body is closed, which may
+ * happen on another thread long after the handler has returned, e.g. once the user has signed the document.
+ */
+class JettyExchange extends HttpExchange {
+    private static final InetSocketAddress UNKNOWN_ADDRESS = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+    private final Request request;
+    private final Response response;
+    private final Callback callback;
+    private final Headers requestHeaders = new Headers();
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private InputStream requestBody;
+    private OutputStream responseBody = new ResponseStream();
+    private OutputStream target;
+    private int responseCode = -1;
+    private boolean closed = false;
+
+    JettyExchange(Request request, Response response, Callback callback) {
+        this.request = request;
+        this.response = response;
+        this.callback = callback;
+        this.requestBody = Content.Source.asInputStream(request);
+
+        for (HttpField field : request.getHeaders())
+            requestHeaders.add(field.getName(), field.getValue());
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return URI.create(request.getHttpURI().getPathQuery());
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return request.getMethod();
+    }
+
+    /**
+     * Contexts of this transport are not HttpServer contexts, endpoints do not use them.
+     */
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+
+            closed = true;
+        }
+
+        if (target == null) {
+            // no response at all, Jetty answers with an error or resets the stream
+            callback.failed(new IOException("Exchange closed without a response"));
+            return;
+        }
+
+        try {
+            responseBody.close();
+            callback.succeeded();
+        } catch (IOException e) {
+            callback.failed(e);
+        }
+    }
+
+    /**
+     * End the exchange without completing the response, Jetty closes the connection or resets the stream.
+     */
+    void abort(Throwable cause) {
+        synchronized (this) {
+            if (closed)
+                return;
+
+            closed = true;
+        }
+
+        callback.failed(cause);
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (target != null)
+            throw new IOException("Headers already sent");
+
+        responseCode = rCode;
+        response.setStatus(rCode);
+        var headers = response.getHeaders();
+        responseHeaders.forEach((name, values) -> {
+            for (var value : values)
+                headers.add(name, value);
+        });
+
+        var hasBody = responseLength >= 0 && rCode != 204 && rCode != 304 && !request.getMethod().equalsIgnoreCase("HEAD");
+        if (!hasBody) {
+            if (rCode != 204 && rCode != 304)
+                headers.put(HttpHeader.CONTENT_LENGTH, 0L);
+        } else if (responseLength > 0) {
+            headers.put(HttpHeader.CONTENT_LENGTH, responseLength);
+        }
+        // unknown length is sent chunked over HTTP/1.1 and as DATA frames over HTTP/2 by Jetty
+
+        target = Content.Sink.asOutputStream(response);
+
+        // without a body there is nothing left to wait for, the JDK HTTP server ends such exchanges too
+        if (!hasBody)
+            close();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return request.getConnectionMetaData().getRemoteSocketAddress() instanceof InetSocketAddress address
+                ? address : UNKNOWN_ADDRESS;
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return request.getConnectionMetaData().getLocalSocketAddress() instanceof InetSocketAddress address
+                ? address : UNKNOWN_ADDRESS;
+    }
+
+    @Override
+    public String getProtocol() {
+        return request.getConnectionMetaData().getProtocol();
+    }
+
+    @Override
+    public synchronized Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public synchronized void setAttribute(String name, Object value) {
+        if (value == null)
+            attributes.remove(name);
+        else
+            attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null)
+            requestBody = i;
+
+        if (o != null)
+            responseBody = o;
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    /**
+     * Response body stream handed out before the headers are sent, writes go to the stream created
+     * by {@link #sendResponseHeaders(int, long)}.
+     */
+    private class ResponseStream extends OutputStream {
+        private boolean closed = false;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target == null)
+                throw new IOException("Response headers have not been sent");
+
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (target != null)
+                target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (this) {
+                if (closed)
+                    return;
+
+                closed = true;
+            }
+
+            if (target != null)
+                target.close();
+
+            // closing the response body ends the exchange, like in the JDK HTTP server
+            JettyExchange.this.close();
+        }
+    }
+}
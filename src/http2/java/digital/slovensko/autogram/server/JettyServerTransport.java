@@ -0,0 +1,158 @@
+package digital.slovensko.autogram.server;
+
+import static digital.slovensko.autogram.core.Configuration.getProperty;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
+import digital.slovensko.autogram.core.errors.PortIsUsedException;
+import digital.slovensko.autogram.core.errors.ServerNotCreatedException;
+import digital.slovensko.autogram.util.Logging;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * TCP transport on top of Jetty, built with the http2 profile only.
+ *
+ * Connections are served by non-blocking selectors, only the handlers run on the server executor. Plain
+ * connections speak HTTP/1.1 and cleartext HTTP/2, TLS connections negotiate HTTP/2 or HTTP/1.1 with ALPN
+ * and resume sessions from the server session cache, see {@link HttpServerTransport#buildSslContext()}.
+ */
+public class JettyServerTransport implements ServerTransport {
+    private final Server server;
+    private final List<Context> contexts = new CopyOnWriteArrayList<>();
+
+    public JettyServerTransport(String hostname, int port, boolean isHttps, Executor executor) {
+        var threadPool = new QueuedThreadPool();
+        threadPool.setName("autogram-jetty");
+        // blocking handlers run on the server executor, which starts a virtual thread for each of them
+        threadPool.setVirtualThreadsExecutor(executor);
+
+        this.server = new Server(threadPool);
+        var connector = isHttps ? createHttpsConnector(server) : createHttpConnector(server);
+        connector.setHost(hostname);
+        connector.setPort(port);
+        connector.setAcceptQueueSize(Integer.parseInt(getProperty("server.backlog")));
+        server.addConnector(connector);
+        server.setHandler(new Dispatcher());
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler, List<Filter> filters) {
+        contexts.add(new Context(path, handler, List.copyOf(filters)));
+    }
+
+    @Override
+    public void start() {
+        try {
+            server.start();
+        } catch (Exception e) {
+            if (e instanceof BindException || e.getCause() instanceof BindException)
+                throw new PortIsUsedException();
+
+            throw new ServerNotCreatedException(e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        try {
+            server.stop();
+        } catch (Exception e) {
+            Logging.log("Failed to stop Jetty server: " + e.getMessage());
+        }
+    }
+
+    private static ServerConnector createHttpConnector(Server server) {
+        var config = new HttpConfiguration();
+        return new ServerConnector(server, new HttpConnectionFactory(config), new HTTP2CServerConnectionFactory(config));
+    }
+
+    private static ServerConnector createHttpsConnector(Server server) {
+        var config = new HttpConfiguration();
+        config.addCustomizer(new SecureRequestCustomizer());
+
+        var sslContextFactory = new SslContextFactory.Server();
+        try {
+            sslContextFactory.setSslContext(HttpServerTransport.buildSslContext());
+        } catch (Exception e) {
+            throw new ServerNotCreatedException(e);
+        }
+        sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+
+        var http1 = new HttpConnectionFactory(config);
+        var http2 = new HTTP2ServerConnectionFactory(config);
+        var alpn = new ALPNServerConnectionFactory(http2.getProtocol(), http1.getProtocol());
+        alpn.setDefaultProtocol(http1.getProtocol());
+
+        return new ServerConnector(server, new SslConnectionFactory(sslContextFactory, alpn.getProtocol()), alpn, http2, http1);
+    }
+
+    private Context match(String requestPath) {
+        // the longest matching prefix wins, like in the JDK HTTP server
+        Context match = null;
+        for (var context : contexts)
+            if (requestPath.startsWith(context.path) && (match == null || context.path.length() > match.path.length()))
+                match = context;
+
+        return match;
+    }
+
+    /**
+     * Hands each request to the endpoint of the longest matching context. The handler may answer from
+     * another thread, Jetty completes the request once the exchange is closed.
+     */
+    private class Dispatcher extends Handler.Abstract {
+        @Override
+        public boolean handle(Request request, Response response, Callback callback) {
+            var requestPath = Request.getPathInContext(request);
+            var context = match(requestPath);
+            if (context == null)
+                return false;
+
+            var exchange = new JettyExchange(request, response, callback);
+            try {
+                new Filter.Chain(context.filters, context.handler).doFilter(exchange);
+            } catch (IOException | RuntimeException e) {
+                // the response may be half written, it cannot be completed
+                Logging.log("Unhandled exception on " + requestPath + ": " + e);
+                exchange.abort(e);
+            }
+
+            return true;
+        }
+    }
+
+    private record Context(String path, HttpHandler handler, List<Filter> filters) {
+    }
+
+    /**
+     * Registered as a {@link ServerTransport.Factory} service, so AutogramServer uses this transport
+     * instead of the JDK HTTP server whenever it is on the class path.
+     */
+    public static class Factory implements ServerTransport.Factory {
+        @Override
+        public ServerTransport create(String hostname, int port, boolean isHttps, Executor executor) {
+            return new JettyServerTransport(hostname, port, isHttps, executor);
+        }
+    }
+}
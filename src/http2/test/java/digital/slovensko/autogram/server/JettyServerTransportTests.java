@@ -0,0 +1,113 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JettyServerTransportTests {
+    private ExecutorService executor;
+    private JettyServerTransport transport;
+    private URI baseUri;
+
+    @BeforeEach
+    public void startTransport() throws IOException {
+        int port;
+        try (var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        baseUri = URI.create("http://localhost:" + port);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        transport = new JettyServerTransport("localhost", port, false, executor);
+        transport.createContext("/echo", exchange -> {
+            var body = exchange.getRequestBody().readAllBytes();
+            try (exchange) {
+                exchange.getResponseHeaders().add("X-Protocol", exchange.getProtocol());
+                exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+                exchange.getResponseBody().write(body);
+            }
+        }, List.of());
+        transport.createContext("/echo/stream", exchange -> {
+            try (exchange) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.getResponseBody().write("streamed".getBytes());
+            }
+        }, List.of());
+        transport.createContext("/later", exchange -> executor.execute(() -> {
+            try (exchange) {
+                // like an endpoint waiting for the user, the handler has returned long before
+                Thread.sleep(200);
+                exchange.sendResponseHeaders(200, 5);
+                exchange.getResponseBody().write("later".getBytes());
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }), List.of());
+        transport.start();
+    }
+
+    @AfterEach
+    public void stopTransport() {
+        transport.stop();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRequestsOverHttp2() throws Exception {
+        try (var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build()) {
+            // the first request upgrades the connection, the next ones are sent as HTTP/2 streams
+            client.send(HttpRequest.newBuilder(baseUri.resolve("/echo")).build(), HttpResponse.BodyHandlers.discarding());
+
+            var response = client.send(HttpRequest.newBuilder(baseUri.resolve("/echo"))
+                    .POST(HttpRequest.BodyPublishers.ofString("hello")).build(), HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(HttpClient.Version.HTTP_2, response.version());
+            assertEquals("HTTP/2.0", response.headers().firstValue("X-Protocol").orElseThrow());
+            assertEquals("hello", response.body());
+        }
+    }
+
+    @Test
+    public void testRequestsOverHttp1() throws Exception {
+        try (var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            var response = client.send(HttpRequest.newBuilder(baseUri.resolve("/echo"))
+                    .POST(HttpRequest.BodyPublishers.ofString("hello")).build(), HttpResponse.BodyHandlers.ofString());
+
+            assertEquals("HTTP/1.1", response.headers().firstValue("X-Protocol").orElseThrow());
+            assertEquals("hello", response.body());
+        }
+    }
+
+    @Test
+    public void testResponseFromAnotherThread() throws Exception {
+        try (var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build()) {
+            var response = client.send(HttpRequest.newBuilder(baseUri.resolve("/later")).build(), HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertEquals("later", response.body());
+        }
+    }
+
+    @Test
+    public void testLongestContextMatchesAndUnknownContextIsNotFound() throws Exception {
+        try (var client = HttpClient.newHttpClient()) {
+            var streamed = client.send(HttpRequest.newBuilder(baseUri.resolve("/echo/stream")).build(), HttpResponse.BodyHandlers.ofString());
+            var unknown = client.send(HttpRequest.newBuilder(baseUri.resolve("/unknown")).build(), HttpResponse.BodyHandlers.discarding());
+
+            assertEquals("streamed", streamed.body());
+            assertEquals(404, unknown.statusCode());
+        }
+    }
+}
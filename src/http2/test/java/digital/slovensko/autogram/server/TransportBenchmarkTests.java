@@ -0,0 +1,112 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Load comparison of the JDK HTTP server and the Jetty transport, excluded from regular builds.
+ *
+ * Run with: mvn test -Phttp2 -Dgroups=TransportBenchmark -DtestExcludedGroups=HttpSmokeTest
+ *
+ * Each transport serves an endpoint echoing a document of the size of a typical signing request, many
+ * clients send requests at once and the throughput and latency percentiles are printed.
+ */
+@Tag("TransportBenchmark")
+public class TransportBenchmarkTests {
+    private static final int CONCURRENCY = 32;
+    private static final int WARMUP_REQUESTS = 2_000;
+    private static final int MEASURED_REQUESTS = 10_000;
+    private static final int BODY_SIZE = 64 * 1024;
+
+    @Test
+    public void compareTransports() throws Exception {
+        var body = new byte[BODY_SIZE];
+        new Random(42).nextBytes(body);
+
+        var results = new ArrayList<String>();
+        results.add(run("JDK HttpServer, HTTP/1.1", HttpServerTransport::new, HttpClient.Version.HTTP_1_1, body));
+        results.add(run("Jetty, HTTP/1.1", JettyServerTransport::new, HttpClient.Version.HTTP_1_1, body));
+        results.add(run("Jetty, HTTP/2 cleartext", JettyServerTransport::new, HttpClient.Version.HTTP_2, body));
+
+        System.out.printf("%-26s %12s %10s %10s %10s%n", "transport", "requests/s", "p50 ms", "p99 ms", "max ms");
+        results.forEach(System.out::println);
+    }
+
+    private static String run(String name, ServerTransport.Factory factory, HttpClient.Version version, byte[] body) throws Exception {
+        int port;
+        try (var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor();
+             var client = HttpClient.newBuilder().version(version).build()) {
+            var transport = factory.create("localhost", port, false, executor);
+            transport.createContext("/echo", exchange -> {
+                var received = exchange.getRequestBody().readAllBytes();
+                try (exchange) {
+                    exchange.sendResponseHeaders(200, received.length);
+                    exchange.getResponseBody().write(received);
+                }
+            }, List.of());
+            transport.start();
+
+            try {
+                var uri = URI.create("http://localhost:" + port + "/echo");
+                send(client, uri, body, new long[WARMUP_REQUESTS]);
+
+                var latencies = new long[MEASURED_REQUESTS];
+                var start = System.nanoTime();
+                send(client, uri, body, latencies);
+                var elapsed = System.nanoTime() - start;
+
+                Arrays.sort(latencies);
+                return String.format("%-26s %12.0f %10.2f %10.2f %10.2f", name, MEASURED_REQUESTS * 1e9 / elapsed,
+                        latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                        latencies[latencies.length - 1] / 1e6);
+            } finally {
+                transport.stop();
+            }
+        }
+    }
+
+    /**
+     * Send as many requests as there are latencies to record, at most CONCURRENCY of them at once.
+     */
+    private static void send(HttpClient client, URI uri, byte[] body, long[] latencies) throws InterruptedException {
+        var permits = new Semaphore(CONCURRENCY);
+        var failed = new AtomicInteger();
+        var futures = new ArrayList<CompletableFuture<?>>();
+        for (int i = 0; i < latencies.length; i++) {
+            permits.acquire();
+            var index = i;
+            var requestStart = System.nanoTime();
+            var request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, e) -> {
+                permits.release();
+                if (e != null || response.statusCode() != 200 || response.body().length != body.length)
+                    failed.incrementAndGet();
+                else
+                    latencies[index] = System.nanoTime() - requestStart;
+            }));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).exceptionally(_ -> null).join();
+        assertEquals(0, failed.get());
+    }
+}
@@ -2,6 +2,7 @@ package digital.slovensko.autogram.core;
 
 import digital.slovensko.autogram.ui.cli.CliApp;
 import digital.slovensko.autogram.ui.gui.GUIApp;
+import digital.slovensko.autogram.util.SpillingOutputStream;
 import javafx.application.Application;
 import org.apache.commons.cli.*;
 
@@ -31,6 +32,8 @@ public class AppStarter {
 
 
     public static void start(String[] args) {
+        Thread.ofPlatform().daemon().name("autogram-temp-sweep").start(SpillingOutputStream::deleteLeftovers);
+
         try {
             CommandLine cmd = new DefaultParser().parse(options, args);
 
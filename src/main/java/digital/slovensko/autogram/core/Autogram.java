@@ -11,11 +11,13 @@ import digital.slovensko.autogram.core.errors.SigningCanceledByUserException;
 import digital.slovensko.autogram.core.errors.UnrecognizedException;
 import digital.slovensko.autogram.core.visualization.DocumentVisualizationBuilder;
 import digital.slovensko.autogram.core.visualization.UnsupportedVisualization;
+import digital.slovensko.autogram.core.visualization.Visualization;
 import digital.slovensko.autogram.drivers.TokenDriver;
 import digital.slovensko.autogram.server.CertificatesResponder;
 import digital.slovensko.autogram.ui.BatchUiResult;
 import digital.slovensko.autogram.ui.UI;
 import digital.slovensko.autogram.util.Logging;
+import digital.slovensko.autogram.util.Metrics;
 import digital.slovensko.autogram.util.PDFUtils;
 import eu.europa.esig.dss.model.DSSException;
 import eu.europa.esig.dss.pdfa.PDFAStructureValidator;
@@ -25,10 +27,14 @@ import java.io.File;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 
+import static digital.slovensko.autogram.core.Configuration.getProperty;
+
 public class Autogram {
     private final UI ui;
     private final UserSettings settings;
@@ -36,6 +42,7 @@ public class Autogram {
     private Batch batch = null;
     private final PasswordManager passwordManager;
     private Timer tokenSessionTimer = null;
+    private BatchSigningPipeline batchSigningPipeline = null;
 
     public Autogram(UI ui, UserSettings settings) {
         this.ui = ui;
@@ -44,6 +51,7 @@ public class Autogram {
     }
 
     public void sign(SigningJob job) {
+        Logging.log("Signing job " + job.getTrace().getId() + " waits for the user");
         ui.onUIThreadDo(()
         -> ui.startSigning(job, this));
     }
@@ -85,7 +93,10 @@ public class Autogram {
             }
 
             try {
-                var visualization = DocumentVisualizationBuilder.fromJob(job, settings);
+                Visualization visualization;
+                try (var _ = job.getTrace().bind(); var _ = Metrics.time("visualization")) {
+                    visualization = DocumentVisualizationBuilder.fromJob(job, settings);
+                }
                 ui.onUIThreadDo(() -> ui.showVisualization(visualization, this));
             } catch (AutogramException e) {
                 ui.onUIThreadDo(() -> ui.showError(e));
@@ -111,20 +122,24 @@ public class Autogram {
                 passwordManager.reset();
 
             callback.accept(job);
-        } catch (PINIncorrectException e) {
-            passwordManager.reset();
-            throw e;
-        } catch (AutogramException e) {
-            throw e;
-        } catch (DSSException e) {
-            throw AutogramException.createFromDSSException(e);
-        } catch (IllegalArgumentException e) {
-            throw AutogramException.createFromIllegalArgumentException(e);
         } catch (Exception e) {
-            throw new UnrecognizedException(e);
+            throw onSigningError(e);
         }
     }
 
+    private AutogramException onSigningError(Throwable e) {
+        return switch (e) {
+            case PINIncorrectException pinIncorrect -> {
+                passwordManager.reset();
+                yield pinIncorrect;
+            }
+            case AutogramException autogramException -> autogramException;
+            case DSSException dssException -> AutogramException.createFromDSSException(dssException);
+            case IllegalArgumentException illegalArgument -> AutogramException.createFromIllegalArgumentException(illegalArgument);
+            default -> new UnrecognizedException(e);
+        };
+    }
+
     public void sign(SigningJob job, SigningKey signingKey) {
         ui.onWorkThreadDo(() -> {
             try {
@@ -160,39 +175,66 @@ public class Autogram {
     }
 
     /**
-     * Sign a single document
+     * Sign a single document and wait until it is responded to. Signing errors, including those ending
+     * the batch, are answered by the job responder, only a job that cannot be added to the batch throws.
      *
      * @param job
      * @param batchId - current batch ID, used to authenticate the request
      */
     public void batchSign(SigningJob job, String batchId) {
+        try {
+            batchSignAsync(job, batchId).join();
+        } catch (CompletionException e) {
+            // the job has been answered with the error already, responding again would fail
+        }
+    }
+
+    /**
+     * Submit a single document to the batch signing pipeline
+     *
+     * @param job
+     * @param batchId - current batch ID, used to authenticate the request
+     * @return future completed after the job is responded to, completed exceptionally if the batch cannot continue
+     */
+    public CompletableFuture<Void> batchSignAsync(SigningJob job, String batchId) {
         if (batch == null) throw new BatchNotStartedException(); // TODO replace with checked exception
 
         batch.addJob(batchId);
 
-        ui.onWorkThreadDo(() -> {
-            try {
-                signCommonAndThen(job, batch.getSigningKey(), (jobNew) -> {
-                    Logging.log("GUI: Signing batch job: " + job.hashCode() + " file " + job.getDocument().getName());
-                });
-            } catch (AutogramException e) {
+        var currentBatch = batch;
+        return getBatchSigningPipeline().submit(job, currentBatch.getSigningKey()).handle((result, error) -> {
+            if (error == null) {
+                Logging.log("GUI: Signing batch job: " + job.getTrace().getId() + " file " + job.getDocument().getName());
+                resetTokenSessionTimer();
+                if (currentBatch.isEnded() || currentBatch.isAllProcessed())
+                    passwordManager.reset();
+
+            } else {
+                var e = onSigningError(error instanceof CompletionException ? error.getCause() : error);
                 job.onDocumentSignFailed(e);
                 if (!e.batchCanContinue()) {
                     ui.onUIThreadDo(() -> {
-                        ui.cancelBatch(batch);
+                        ui.cancelBatch(currentBatch);
                     });
                     throw e;
                 }
-            } catch (Exception e) {
-                AutogramException autogramException = new AutogramException("SIGNING_FAILED", e);
-                job.onDocumentSignFailed(autogramException);
             }
+
             ui.onUIThreadDo(() -> {
                 ui.updateBatch();
             });
+            return null;
         });
     }
 
+    private synchronized BatchSigningPipeline getBatchSigningPipeline() {
+        if (batchSigningPipeline == null)
+            batchSigningPipeline = new BatchSigningPipeline(Integer.parseInt(getProperty("batch.pipeline.threads")),
+                    Integer.parseInt(getProperty("batch.pipeline.queueSize")));
+
+        return batchSigningPipeline;
+    }
+
     /**
      * End the batch
      *
@@ -270,9 +312,9 @@ public class Autogram {
         ui.onUIThreadDo(() -> ui.onSigningFailed(e));
     }
 
-    public void initializeSignatureValidator(ScheduledExecutorService scheduledExecutorService, ExecutorService cachedExecutorService, List<String> tlCountries) {
+    public void initializeSignatureValidator(ScheduledExecutorService scheduledExecutorService, ExecutorService tlExecutorService, List<String> tlCountries) {
         ui.onWorkThreadDo(() -> {
-            SignatureValidator.getInstance().initialize(cachedExecutorService, tlCountries);
+            SignatureValidator.getInstance().initialize(tlExecutorService, tlCountries);
         });
 
         scheduledExecutorService.scheduleAtFixedRate(() -> SignatureValidator.getInstance().refresh(),
@@ -291,6 +333,10 @@ public class Autogram {
         return settings.isPlainXmlEnabled();
     }
 
+    public int getPdfDpi() {
+        return settings.getPdfDpi();
+    }
+
     private void stopTokenSessionTimer() {
         if (tokenSessionTimer == null)
             return;
@@ -309,13 +355,15 @@ public class Autogram {
         tokenSessionTimer.schedule(timerTask, settings.getTokenSessionTimeout() * 60 * 1000);
     }
 
-    private void resetTokenSessionTimer() {
+    private synchronized void resetTokenSessionTimer() {
         stopTokenSessionTimer();
         startTokenSessionTimer();
     }
 
     public void shutdown() {
         stopTokenSessionTimer();
+        if (batchSigningPipeline != null)
+            batchSigningPipeline.shutdown();
     }
 
     public void consentCertificateReadingAndThen(CertificatesResponder responder, List<String> drivers) {
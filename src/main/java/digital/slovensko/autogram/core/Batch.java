@@ -6,7 +6,11 @@ import digital.slovensko.autogram.core.errors.BatchInvalidIdException;
 import digital.slovensko.autogram.util.Logging;
 
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static digital.slovensko.autogram.core.errors.BatchEndedException.Error.ALREADY_ENDED;
 import static digital.slovensko.autogram.core.errors.BatchEndedException.Error.CANNOT_RESTART;
@@ -25,13 +29,17 @@ public class Batch {
     private final String batchId = generateNewBatchId();
     private final int totalNumberOfDocuments;
 
-    private BatchState state = BatchState.INITIALIZED;
+    private volatile BatchState state = BatchState.INITIALIZED;
     private SigningKey signingKey = null;
 
-    private Date expirationDate;
-    private int addedDocumentsCount = 0;
-    private int successfulDocumentsCount = 0;
-    private int failedDocumentsCount = 0;
+    private volatile Date expirationDate;
+    // jobs are added and finish on several threads at once
+    private final AtomicInteger addedDocumentsCount = new AtomicInteger();
+    private final AtomicInteger successfulDocumentsCount = new AtomicInteger();
+    private final AtomicInteger failedDocumentsCount = new AtomicInteger();
+
+    /** Notified on the signing thread whenever a job finishes or the batch ends */
+    private final List<Consumer<Batch>> listeners = new CopyOnWriteArrayList<>();
 
     public Batch(int totalNumberOfDocuments) {
         this.totalNumberOfDocuments = totalNumberOfDocuments;
@@ -49,26 +57,41 @@ public class Batch {
         validate(batchId);
         resetExpirationDate();
 
-        if (this.totalNumberOfDocuments <= this.addedDocumentsCount)
+        var added = addedDocumentsCount.getAndUpdate(count -> count < totalNumberOfDocuments ? count + 1 : count);
+        if (added >= totalNumberOfDocuments)
             throw new IllegalAccessError("Sent more sign requests than declared at start");
-
-        addedDocumentsCount++;
     }
 
     public void onJobSuccess() {
-        successfulDocumentsCount++;
+        successfulDocumentsCount.incrementAndGet();
         Logging.log("Batch " + batchId + " success");
         log();
+        notifyListeners();
     }
 
     public void onJobFailure() {
-        failedDocumentsCount++;
+        failedDocumentsCount.incrementAndGet();
         Logging.log("Batch " + batchId + " failed");
         log();
+        notifyListeners();
     }
 
     public void end() {
         state = BatchState.ENDED;
+        notifyListeners();
+    }
+
+    public void addListener(Consumer<Batch> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Batch> listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        for (var listener : listeners)
+            listener.accept(this);
     }
 
     private void validateInternal() {
@@ -114,7 +137,15 @@ public class Batch {
     }
 
     public int getProcessedDocumentsCount(){
-        return successfulDocumentsCount + failedDocumentsCount;
+        return successfulDocumentsCount.get() + failedDocumentsCount.get();
+    }
+
+    public int getSuccessfulDocumentsCount() {
+        return successfulDocumentsCount.get();
+    }
+
+    public int getFailedDocumentsCount() {
+        return failedDocumentsCount.get();
     }
 
     public SigningKey getSigningKey() {
@@ -126,7 +157,7 @@ public class Batch {
         return UUID.randomUUID().toString();
     }
 
-    private boolean isExpired() {
+    public boolean isExpired() {
         return expirationDate.before(new Date());
     }
 
@@ -135,7 +166,7 @@ public class Batch {
     }
 
     public void log() {
-        Logging.log("Batch " + batchId + " state: " + state + " processed: " + addedDocumentsCount + " total: " + totalNumberOfDocuments);
+        Logging.log("Batch " + batchId + " state: " + state + " processed: " + addedDocumentsCount.get() + " total: " + totalNumberOfDocuments);
     }
 
 }
@@ -0,0 +1,110 @@
+package digital.slovensko.autogram.core;
+
+import digital.slovensko.autogram.util.Trace;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Signs documents of a batch in three stages, so the token is kept busy while other documents are
+ * prepared and completed.
+ *
+ * Preparing the data to be signed and completing the signed document (timestamp included) run on
+ * thread pools. Signing with the token runs on a single thread, because the token signs one document
+ * at a time anyway. Every stage has a bounded
+ * queue, a stage with a full queue holds back the stage in front of it and submitting blocks the caller.
+ */
+public class BatchSigningPipeline {
+    private static final RejectedExecutionHandler WAIT_FOR_SPACE = (task, executor) -> {
+        try {
+            while (!executor.getQueue().offer(task, 100, TimeUnit.MILLISECONDS))
+                if (executor.isShutdown())
+                    throw new RejectedExecutionException("Batch signing pipeline is shut down");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+
+        // the stage may have been shut down meanwhile, nobody would run the task then
+        if (executor.isShutdown() && executor.getQueue().remove(task))
+            throw new RejectedExecutionException("Batch signing pipeline is shut down");
+    };
+
+    private final ThreadPoolExecutor preparing;
+    private final ThreadPoolExecutor signing;
+    private final ThreadPoolExecutor completing;
+
+    public BatchSigningPipeline(int threads, int queueSize) {
+        this.preparing = createStage("prepare", threads, queueSize);
+        this.signing = createStage("token", 1, queueSize);
+        this.completing = createStage("complete", threads, queueSize);
+    }
+
+    /**
+     * Sign the job with the key and respond, the future completes after the job has been responded to.
+     */
+    public CompletableFuture<Void> submit(SigningJob job, SigningKey key) {
+        return submit(job.getTrace(), () -> job.prepareSignature(key), prepared -> job.signWithToken(key, prepared),
+                (prepared, signatureValue) -> job.respond(job.completeSignature(prepared, signatureValue), key));
+    }
+
+    <P, V> CompletableFuture<Void> submit(Trace trace, Supplier<P> prepare, Function<P, V> sign, BiConsumer<P, V> complete) {
+        var result = new CompletableFuture<Void>();
+        runStage(preparing, trace, result, () -> {
+            var prepared = prepare.get();
+            runStage(signing, trace, result, () -> {
+                var signatureValue = sign.apply(prepared);
+                runStage(completing, trace, result, () -> {
+                    complete.accept(prepared, signatureValue);
+                    result.complete(null);
+                });
+            });
+        });
+
+        return result;
+    }
+
+    /**
+     * Stop all stages. Documents that are still queued fail, so nobody waits for them forever.
+     */
+    public void shutdown() {
+        for (var stage : List.of(preparing, signing, completing))
+            for (var task : stage.shutdownNow())
+                if (task instanceof StageTask stageTask)
+                    stageTask.result.completeExceptionally(new RejectedExecutionException("Batch signing pipeline is shut down"));
+    }
+
+    private static void runStage(ThreadPoolExecutor stage, Trace trace, CompletableFuture<Void> result, Runnable task) {
+        try {
+            stage.execute(new StageTask(trace, result, task));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private record StageTask(Trace trace, CompletableFuture<Void> result, Runnable task) implements Runnable {
+        @Override
+        public void run() {
+            try (var _ = trace.bind()) {
+                task.run();
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor createStage(String name, int threads, int queueSize) {
+        var executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                Thread.ofPlatform().daemon().name("autogram-batch-" + name + "-", 0).factory(), WAIT_FOR_SPACE);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
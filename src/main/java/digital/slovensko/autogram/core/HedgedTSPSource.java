@@ -0,0 +1,143 @@
+package digital.slovensko.autogram.core;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.model.TimestampBinary;
+import eu.europa.esig.dss.spi.x509.tsp.TSPSource;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timestamps from the first of several TSAs that answers.
+ *
+ * TSAs are asked in the configured order, but the next one is asked as well when the current one takes
+ * longer than it usually does (95th percentile of its recent responses) or fails. A TSA that failed
+ * several times in a row is asked last for a while. Unlike CompositeTSPSource, a slow TSA does not add
+ * its full timeout to every timestamp.
+ */
+public class HedgedTSPSource implements TSPSource {
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final int SAMPLES = 64;
+    private static final double PERCENTILE = 0.95;
+    private static final long DEFAULT_HEDGE_DELAY_MILLIS = 3000;
+    private static final long MIN_HEDGE_DELAY_MILLIS = 100;
+    private static final int FAILURES_TO_DEPRIORITIZE = 3;
+    private static final long DEPRIORITIZED_MILLIS = 60_000;
+
+    private final List<Tsa> tsas;
+
+    public HedgedTSPSource(Map<String, TSPSource> tspSources) {
+        this.tsas = tspSources.entrySet().stream().map(e -> new Tsa(e.getKey(), e.getValue())).toList();
+    }
+
+    @Override
+    public TimestampBinary getTimeStampResponse(DigestAlgorithm digestAlgorithm, byte[] digest) throws DSSException {
+        // sorting is stable, the configured order is kept among healthy TSAs
+        var ordered = tsas.stream().sorted(Comparator.comparing(Tsa::isDeprioritized)).toList();
+        var responses = new ExecutorCompletionService<TimestampBinary>(executor);
+        Throwable lastFailure = null;
+
+        try {
+            var asked = 1;
+            var running = 1;
+            responses.submit(ordered.getFirst().request(digestAlgorithm, digest));
+
+            while (running > 0) {
+                var canHedge = asked < ordered.size();
+                var response = canHedge
+                        ? responses.poll(ordered.get(asked - 1).getHedgeDelayMillis(), TimeUnit.MILLISECONDS)
+                        : responses.take();
+
+                if (response != null) {
+                    running--;
+                    try {
+                        return response.get();
+                    } catch (ExecutionException e) {
+                        lastFailure = e.getCause();
+                    }
+                }
+
+                // the last TSA asked is slow or has failed, the ones asked before may still answer
+                if (canHedge && (response == null || running == 0)) {
+                    responses.submit(ordered.get(asked++).request(digestAlgorithm, digest));
+                    running++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DSSException("Interrupted while waiting for a timestamp", e);
+        }
+
+        throw new DSSException("Unable to retrieve a timestamp from " + tsas.stream().map(Tsa::getUrl).toList(), lastFailure);
+    }
+
+    /**
+     * Latencies and failures of one TSA, the losing requests of a hedge are recorded as well.
+     */
+    static class Tsa {
+        private final String url;
+        private final TSPSource tspSource;
+        private final long[] latencies = new long[SAMPLES];
+        private int samples = 0;
+        private int consecutiveFailures = 0;
+        private long lastFailureAt = 0;
+
+        Tsa(String url, TSPSource tspSource) {
+            this.url = url;
+            this.tspSource = tspSource;
+        }
+
+        String getUrl() {
+            return url;
+        }
+
+        Callable<TimestampBinary> request(DigestAlgorithm digestAlgorithm, byte[] digest) {
+            return () -> {
+                var start = System.nanoTime();
+                try {
+                    var response = tspSource.getTimeStampResponse(digestAlgorithm, digest);
+                    onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return response;
+                } catch (RuntimeException e) {
+                    onFailure();
+                    throw e;
+                }
+            };
+        }
+
+        synchronized void onSuccess(long millis) {
+            latencies[samples++ % SAMPLES] = millis;
+            consecutiveFailures = 0;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            lastFailureAt = System.currentTimeMillis();
+        }
+
+        synchronized boolean isDeprioritized() {
+            return consecutiveFailures >= FAILURES_TO_DEPRIORITIZE
+                    && System.currentTimeMillis() - lastFailureAt < DEPRIORITIZED_MILLIS;
+        }
+
+        synchronized long getHedgeDelayMillis() {
+            if (samples == 0)
+                return DEFAULT_HEDGE_DELAY_MILLIS;
+
+            var recent = Arrays.copyOf(latencies, Math.min(samples, SAMPLES));
+            Arrays.sort(recent);
+            var percentile = recent[(int) Math.ceil(PERCENTILE * recent.length) - 1];
+            return Math.max(MIN_HEDGE_DELAY_MILLIS, percentile);
+        }
+    }
+}
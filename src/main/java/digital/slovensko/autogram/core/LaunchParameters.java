@@ -13,7 +13,9 @@ import static digital.slovensko.autogram.core.Configuration.getProperty;
 import static digital.slovensko.autogram.core.LaunchParameters.Validations.*;
 import static java.util.Optional.ofNullable;
 
+import java.io.File;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
 
 public class LaunchParameters {
     protected Map<String, String> parameters;
@@ -25,6 +27,8 @@ public class LaunchParameters {
     private int initialNonce;
     private String language;
     private boolean standaloneMode;
+    private String unixSocket;
+    private List<Path> signingDirectories = List.of();
 
     private LaunchParameters(Map<String, String> params, boolean standaloneMode) {
         this.parameters = params;
@@ -50,6 +54,19 @@ public class LaunchParameters {
             this.secretKey = validateSecretKey(key);
         if ((nonce != null) && !nonce.isBlank())
             this.initialNonce = validateInitialNonce(nonce);
+
+        // local integrations can talk to the server over a Unix domain socket, e.g. --socket=/run/user/1000/autogram.sock,
+        // any web page can launch the app with a URL, so the path is never taken from its query
+        var socket = standaloneMode ? params.get("socket") : null;
+        if ((socket != null) && !socket.isBlank())
+            this.unixSocket = socket;
+
+        // local integrations can have files in these directories signed by path, e.g. --signingDirectories=/home/user/Scans,
+        // like the socket path they are never taken from a launch URL
+        var directories = standaloneMode ? params.get("signingDirectories") : null;
+        if ((directories != null) && !directories.isBlank())
+            this.signingDirectories = Arrays.stream(directories.split(File.pathSeparator))
+                    .filter(directory -> !directory.isBlank()).map(Path::of).toList();
     }
 
     public static LaunchParameters fromParameters(Parameters parameters) {
@@ -119,6 +136,14 @@ public class LaunchParameters {
         return language;
     }
 
+    public String getUnixSocket() {
+        return unixSocket;
+    }
+
+    public List<Path> getSigningDirectories() {
+        return signingDirectories;
+    }
+
     public static class Validations {
         private static final int MAX_PORT_NUMBER = 65535;
         private static final String VALID_ORIGIN_REGEX = "^\\*|((https?:\\/\\/)([^\\s.:/\\\\]+[\\.])*([^\\s.:/\\\\]+)(:\\d+)?)$";
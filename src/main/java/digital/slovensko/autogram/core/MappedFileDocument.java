@@ -0,0 +1,121 @@
+package digital.slovensko.autogram.core;
+
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.model.FileDocument;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File document read through a read-only memory mapping of the file.
+ *
+ * A job opens its document many times: XDC detection, signature level detection, PDF password check,
+ * visualization, digests and signing. The mapping is created once, every stream reads the mapped pages
+ * without copying them through a stream buffer, and computed digests are cached by the document.
+ *
+ * The mapping holds the file open, on Windows it cannot be deleted or replaced meanwhile, so the job
+ * releases it when it ends, see {@link #release()}. A file truncated by another program while mapped
+ * fails the read with an IOException, as a stream of a plain file document would.
+ */
+public class MappedFileDocument extends FileDocument {
+    private Arena arena;
+    private MemorySegment mapping;
+    private boolean released = false;
+
+    public MappedFileDocument(File file) {
+        super(file);
+    }
+
+    @Override
+    public InputStream openStream() {
+        var segment = getMapping();
+        if (segment == null)
+            return super.openStream();
+
+        return new SegmentInputStream(segment);
+    }
+
+    /**
+     * Unmap the file, streams opened afterwards read it as a plain file document.
+     */
+    public synchronized void release() {
+        released = true;
+        if (arena == null)
+            return;
+
+        arena.close();
+        arena = null;
+        mapping = null;
+    }
+
+    private synchronized MemorySegment getMapping() {
+        if (mapping != null || released)
+            return mapping;
+
+        try (var channel = FileChannel.open(getFile().toPath(), StandardOpenOption.READ)) {
+            var mappingArena = Arena.ofShared();
+            // the mapping stays valid after the channel is closed, until the arena is
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), mappingArena);
+            arena = mappingArena;
+            return mapping;
+
+        } catch (IOException e) {
+            throw new DSSException("Unable to map file " + getFile(), e);
+        }
+    }
+
+    private class SegmentInputStream extends InputStream {
+        private final MemorySegment segment;
+        private long position = 0;
+
+        SegmentInputStream(MemorySegment segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+
+            if (position >= segment.byteSize())
+                return -1;
+
+            var count = (int) Math.min(len, segment.byteSize() - position);
+            try {
+                MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, position, b, off, count);
+            } catch (IllegalStateException e) {
+                throw new IOException("Mapping of " + getFile() + " has been released", e);
+            } catch (InternalError e) {
+                // the file has been truncated, the pages are gone
+                throw new IOException("Unable to read file " + getFile(), e);
+            }
+
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            var count = Math.max(0, Math.min(n, segment.byteSize() - position));
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, segment.byteSize() - position);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package digital.slovensko.autogram.core;
+
+import digital.slovensko.autogram.util.Logging;
+import eu.europa.esig.dss.service.http.commons.TimestampDataLoader;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.io.CloseMode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Timestamp data loader reusing its HTTP client, and so its kept-alive connections, for each TSA.
+ *
+ * DSS builds a new client with its own connection pool for every request and closes it afterwards,
+ * so every timestamp would start with a new TCP and TLS handshake. The pooled clients live until
+ * {@link #close()} and the requests in progress on them have finished, requests made after that get
+ * a client of their own again, like in DSS.
+ */
+public final class PooledTimestampDataLoader extends TimestampDataLoader implements AutoCloseable {
+    private final transient Map<String, CloseableHttpClient> clients = new HashMap<>();
+    private int requestsInProgress = 0;
+    private boolean closed = false;
+
+    public PooledTimestampDataLoader(int connectionsPerTsa) {
+        setConnectionsMaxPerRoute(connectionsPerTsa);
+        setConnectionsMaxTotal(Math.max(connectionsPerTsa, getConnectionsMaxTotal()));
+    }
+
+    @Override
+    protected synchronized CloseableHttpClient getHttpClient(String url) {
+        if (closed)
+            return super.getHttpClient(url);
+
+        var client = clients.computeIfAbsent(url, super::getHttpClient);
+        requestsInProgress++;
+        return client;
+    }
+
+    @Override
+    protected void closeQuietly(HttpUriRequestBase httpRequest, CloseableHttpClient client) {
+        // the response is consumed and its connection returned to the pool, the client is kept for the next request
+        if (!release(client))
+            super.closeQuietly(httpRequest, client);
+    }
+
+    /**
+     * Close the pooled clients, e.g. when the TSA servers are replaced. Jobs may still hold the loader,
+     * so the clients are closed once the requests in progress on them have finished.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (requestsInProgress == 0)
+            closeClients();
+    }
+
+    private synchronized boolean release(CloseableHttpClient client) {
+        if (client == null || !clients.containsValue(client))
+            return false;
+
+        requestsInProgress--;
+        if (closed && requestsInProgress == 0)
+            closeClients();
+
+        return true;
+    }
+
+    private void closeClients() {
+        for (var entry : clients.entrySet()) {
+            try {
+                entry.getValue().close(CloseMode.GRACEFUL);
+            } catch (RuntimeException e) {
+                Logging.log("Failed to close HTTP client of " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        clients.clear();
+    }
+}
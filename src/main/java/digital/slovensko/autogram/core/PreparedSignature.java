@@ -0,0 +1,39 @@
+package digital.slovensko.autogram.core;
+
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.SerializableSignatureParameters;
+import eu.europa.esig.dss.model.SignatureValue;
+import eu.europa.esig.dss.model.ToBeSigned;
+import eu.europa.esig.dss.signature.DocumentSignatureService;
+
+import java.util.function.Function;
+
+/**
+ * Signature of a document waiting for its value from the token.
+ *
+ * Keeps the signature parameters used to compute the data to be signed, the signature value is only valid
+ * for the same parameters, including the signing time.
+ */
+public final class PreparedSignature {
+    private final ToBeSigned dataToSign;
+    private final Function<SignatureValue, DSSDocument> completion;
+
+    private PreparedSignature(ToBeSigned dataToSign, Function<SignatureValue, DSSDocument> completion) {
+        this.dataToSign = dataToSign;
+        this.completion = completion;
+    }
+
+    static <P extends SerializableSignatureParameters> PreparedSignature prepare(DocumentSignatureService<P, ?> service,
+            DSSDocument document, P parameters) {
+        var dataToSign = service.getDataToSign(document, parameters);
+        return new PreparedSignature(dataToSign, signatureValue -> service.signDocument(document, parameters, signatureValue));
+    }
+
+    ToBeSigned getDataToSign() {
+        return dataToSign;
+    }
+
+    DSSDocument complete(SignatureValue signatureValue) {
+        return completion.apply(signatureValue);
+    }
+}
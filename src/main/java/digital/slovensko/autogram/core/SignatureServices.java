@@ -0,0 +1,92 @@
+package digital.slovensko.autogram.core;
+
+import digital.slovensko.autogram.util.TemporaryDocuments;
+import eu.europa.esig.dss.alert.LogOnStatusAlert;
+import eu.europa.esig.dss.asic.cades.signature.ASiCWithCAdESService;
+import eu.europa.esig.dss.asic.xades.signature.ASiCWithXAdESService;
+import eu.europa.esig.dss.cades.signature.CAdESService;
+import eu.europa.esig.dss.pades.signature.PAdESService;
+import eu.europa.esig.dss.pdf.ServiceLoaderPdfObjFactory;
+import eu.europa.esig.dss.signature.AbstractSignatureService;
+import eu.europa.esig.dss.spi.validation.CommonCertificateVerifier;
+import eu.europa.esig.dss.spi.x509.tsp.TSPSource;
+import eu.europa.esig.dss.xades.signature.XAdESService;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * DSS signature services shared by all signing jobs.
+ *
+ * Services and the certificate verifier are configured once and only read afterwards, so they can be used
+ * by several jobs at once. A service is kept for each service type and TSP source, the TSP source is null
+ * for levels without a timestamp. Only services of the last used TSP source are kept, sources replaced in
+ * the settings are dropped together with their services.
+ *
+ * Signed PDFs above the document.spillThreshold are written to temporary files while a
+ * {@link TemporaryDocuments} scope is bound, see {@link SigningJob}.
+ */
+public class SignatureServices {
+    private static final CommonCertificateVerifier certificateVerifier = createCertificateVerifier();
+    private static final Map<Key, AbstractSignatureService<?, ?>> services = new HashMap<>();
+    private static TSPSource currentTspSource;
+
+    private SignatureServices() {
+    }
+
+    public static XAdESService getXAdESService(TSPSource tspSource) {
+        return get(XAdESService.class, tspSource, () -> withTspSource(new XAdESService(certificateVerifier), tspSource));
+    }
+
+    public static CAdESService getCAdESService(TSPSource tspSource) {
+        return get(CAdESService.class, tspSource, () -> withTspSource(new CAdESService(certificateVerifier), tspSource));
+    }
+
+    public static PAdESService getPAdESService(TSPSource tspSource) {
+        return get(PAdESService.class, tspSource, () -> withTspSource(createPAdESService(), tspSource));
+    }
+
+    public static ASiCWithXAdESService getASiCWithXAdESService(TSPSource tspSource) {
+        return get(ASiCWithXAdESService.class, tspSource, () -> withTspSource(new ASiCWithXAdESService(certificateVerifier), tspSource));
+    }
+
+    public static ASiCWithCAdESService getASiCWithCAdESService(TSPSource tspSource) {
+        return get(ASiCWithCAdESService.class, tspSource, () -> withTspSource(new ASiCWithCAdESService(certificateVerifier), tspSource));
+    }
+
+    private static synchronized <T extends AbstractSignatureService<?, ?>> T get(Class<T> type, TSPSource tspSource,
+            Supplier<T> create) {
+        if (tspSource != null && !tspSource.equals(currentTspSource)) {
+            currentTspSource = tspSource;
+            services.keySet().removeIf(key -> key.tspSource() != null);
+        }
+
+        return type.cast(services.computeIfAbsent(new Key(type, tspSource), _ -> create.get()));
+    }
+
+    private static <T extends AbstractSignatureService<?, ?>> T withTspSource(T service, TSPSource tspSource) {
+        if (tspSource != null)
+            service.setTspSource(tspSource);
+
+        return service;
+    }
+
+    private static PAdESService createPAdESService() {
+        var pdfObjFactory = new ServiceLoaderPdfObjFactory();
+        pdfObjFactory.setResourcesHandlerBuilder(TemporaryDocuments.getResourcesHandlerBuilder());
+
+        var service = new PAdESService(certificateVerifier);
+        service.setPdfObjFactory(pdfObjFactory);
+        return service;
+    }
+
+    private static CommonCertificateVerifier createCertificateVerifier() {
+        var verifier = new CommonCertificateVerifier();
+        verifier.setAlertOnExpiredCertificate(new LogOnStatusAlert()); // expired certificates are filtered on UI level
+        return verifier;
+    }
+
+    private record Key(Class<?> type, TSPSource tspSource) {
+    }
+}
@@ -8,6 +8,8 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -22,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import digital.slovensko.autogram.util.Metrics;
 import digital.slovensko.autogram.util.XMLUtils;
 import eu.europa.esig.dss.enumerations.SignatureLevel;
 import eu.europa.esig.dss.model.DSSDocument;
@@ -48,8 +51,9 @@ import static digital.slovensko.autogram.util.DSSUtils.*;
 public class SignatureValidator {
     private static final String LOTL_URL = "https://ec.europa.eu/tools/lotl/eu-lotl.xml";
     private static final String OJ_URL = "https://eur-lex.europa.eu/legal-content/EN/TXT/?uri=uriserv:OJ.C_.2019.276.01.0001.01.ENG";
-    private CertificateVerifier verifier;
+    private volatile CertificateVerifier verifier;
     private TLValidationJob validationJob;
+    private final ReadWriteLock trustedListsLock = new ReentrantReadWriteLock();
     private static Logger logger = LoggerFactory.getLogger(SignatureValidator.class);
 
     // Singleton
@@ -65,15 +69,32 @@ public class SignatureValidator {
         return instance;
     }
 
-    public synchronized Reports validate(SignedDocumentValidator docValidator) {
+    /**
+     * Documents can be validated concurrently, only a refresh of the trusted lists waits for the running
+     * validations to finish and holds new ones back until it is done.
+     */
+    public Reports validate(SignedDocumentValidator docValidator) {
         docValidator.setCertificateVerifier(verifier);
 
         // TODO: do not print stack trace inside DSS
-        return docValidator.validateDocument();
+        trustedListsLock.readLock().lock();
+        try (var _ = Metrics.time("signature_validation")) {
+            return docValidator.validateDocument();
+        } finally {
+            trustedListsLock.readLock().unlock();
+        }
     }
 
+    /**
+     * Reload the trusted lists, they are shared by the certificate verifier with all validations.
+     */
     public synchronized void refresh() {
-        validationJob.offlineRefresh();
+        trustedListsLock.writeLock().lock();
+        try {
+            validationJob.offlineRefresh();
+        } finally {
+            trustedListsLock.writeLock().unlock();
+        }
     }
 
     public synchronized void initialize(ExecutorService executorService, List<String> tlCountries) {
@@ -127,7 +148,7 @@ public class SignatureValidator {
         }
     }
 
-    public synchronized ValidationReports getSignatureValidationReport(SigningJob job) {
+    public ValidationReports getSignatureValidationReport(SigningJob job) {
         var documentValidator = createDocumentValidator(job.getDocument());
         if (documentValidator == null)
             return new ValidationReports(null, job);
@@ -187,6 +208,10 @@ public class SignatureValidator {
         return report.getSignatureFormat(report.getSignatureIdList().get(0));
     }
 
+    public boolean isInitialized() {
+        return verifier != null;
+    }
+
     public synchronized boolean areTLsLoaded() {
         // TODO: consider validation turned off as well
         return validationJob.getSummary().getNumberOfProcessedTLs() > 0;
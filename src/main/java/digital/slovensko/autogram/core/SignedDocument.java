@@ -1,15 +1,25 @@
 package digital.slovensko.autogram.core;
 
+import digital.slovensko.autogram.util.TemporaryDocuments;
 import eu.europa.esig.dss.model.DSSDocument;
 import eu.europa.esig.dss.model.x509.CertificateToken;
 
 public class SignedDocument {
     private final DSSDocument dssDocument;
     private final CertificateToken certificate;
+    private final TemporaryDocuments temporaryDocuments;
 
     public SignedDocument(DSSDocument dssDocument, CertificateToken certificate) {
+        this(dssDocument, certificate, null);
+    }
+
+    /**
+     * @param temporaryDocuments scope of the temporary file behind a large document, deleted once the responder has returned
+     */
+    public SignedDocument(DSSDocument dssDocument, CertificateToken certificate, TemporaryDocuments temporaryDocuments) {
         this.dssDocument = dssDocument;
         this.certificate = certificate;
+        this.temporaryDocuments = temporaryDocuments;
     }
 
   public DSSDocument getDocument() {
@@ -19,4 +29,17 @@ public class SignedDocument {
   public CertificateToken getCertificate() {
     return certificate;
   }
+
+  /**
+   * Responders reading the document after they have returned have to keep it, until they {@link #release()} it.
+   */
+  public void keep() {
+    if (temporaryDocuments != null)
+      temporaryDocuments.keep();
+  }
+
+  public void release() {
+    if (temporaryDocuments != null)
+      temporaryDocuments.release();
+  }
 }
@@ -7,18 +7,15 @@ import digital.slovensko.autogram.core.eforms.xdc.XDCBuilder;
 import digital.slovensko.autogram.core.eforms.xdc.XDCValidator;
 import digital.slovensko.autogram.core.errors.AutogramException;
 import digital.slovensko.autogram.util.Logging;
-import eu.europa.esig.dss.alert.LogOnStatusAlert;
-import eu.europa.esig.dss.asic.cades.signature.ASiCWithCAdESService;
-import eu.europa.esig.dss.asic.xades.signature.ASiCWithXAdESService;
-import eu.europa.esig.dss.cades.signature.CAdESService;
+import digital.slovensko.autogram.util.Metrics;
+import digital.slovensko.autogram.util.TemporaryDocuments;
+import digital.slovensko.autogram.util.Trace;
 import eu.europa.esig.dss.enumerations.MimeTypeEnum;
 import eu.europa.esig.dss.enumerations.SignatureLevel;
 import eu.europa.esig.dss.model.DSSDocument;
 import eu.europa.esig.dss.model.FileDocument;
-import eu.europa.esig.dss.pades.signature.PAdESService;
+import eu.europa.esig.dss.model.SignatureValue;
 import eu.europa.esig.dss.spi.x509.tsp.TSPSource;
-import eu.europa.esig.dss.spi.validation.CommonCertificateVerifier;
-import eu.europa.esig.dss.xades.signature.XAdESService;
 
 import static digital.slovensko.autogram.core.AutogramMimeType.*;
 import static digital.slovensko.autogram.util.DSSUtils.getXdcfFilename;
@@ -27,6 +24,10 @@ public class SigningJob {
     private final Responder responder;
     private final DSSDocument document;
     private final SigningParameters parameters;
+    // jobs created while serving a request continue its trace
+    private final Trace trace = Trace.currentOrStart();
+    private final long createdAt = System.nanoTime();
+    private final TemporaryDocuments temporaryDocuments = new TemporaryDocuments();
 
     private SigningJob(DSSDocument document, SigningParameters parameters, Responder responder) {
         this.document = document;
@@ -46,116 +47,147 @@ public class SigningJob {
         return parameters.getVisualizationWidth();
     }
 
+    public Trace getTrace() {
+        return trace;
+    }
+
     public void signWithKeyAndRespond(SigningKey key) throws InterruptedException, AutogramException {
+        try (var _ = trace.bind()) {
+            var prepared = prepareSignature(key);
+            var signatureValue = signWithToken(key, prepared);
+            respond(completeSignature(prepared, signatureValue), key);
+        } finally {
+            temporaryDocuments.discard();
+            releaseDocument();
+        }
+    }
 
-        Logging.log("Signing Job: " + this.hashCode() + " file " + getDocument().getName());
+    /**
+     * First stage of signing, builds the signature and computes the data to be signed by the token.
+     * Signing is split into stages, so documents in a batch can be prepared and completed in parallel
+     * while the token signs one at a time, see {@link BatchSigningPipeline}.
+     */
+    public PreparedSignature prepareSignature(SigningKey key) {
+        // from the job creation until the user confirms signing, visualization included
+        trace.record("user", System.nanoTime() - createdAt);
+
+        Logging.log("Signing Job: " + trace.getId() + " file " + getDocument().getName());
         boolean isContainer = getParameters().getContainer() != null;
-        var doc = switch (getParameters().getSignatureType()) {
-            case XAdES -> isContainer ? signDocumentAsAsiCWithXAdeS(key) : signDocumentAsXAdeS(key);
-            case CAdES -> isContainer ? signDocumentAsASiCWithCAdeS(key) : signDocumentAsCAdeS(key);
-            case PAdES -> signDocumentAsPAdeS(key);
-            default -> throw new RuntimeException(
-                    "Unsupported signature type: " + getParameters().getSignatureType());
-        };
-        responder.onDocumentSigned(new SignedDocument(doc, key.getCertificate()));
+        try (var _ = temporaryDocuments.bind(); var _ = Metrics.time("signature_prepare")) {
+            return switch (getParameters().getSignatureType()) {
+                case XAdES -> isContainer ? prepareAsiCWithXAdeS(key) : prepareXAdeS(key);
+                case CAdES -> isContainer ? prepareASiCWithCAdeS(key) : prepareCAdeS(key);
+                case PAdES -> preparePAdeS(key);
+                default -> throw new RuntimeException(
+                        "Unsupported signature type: " + getParameters().getSignatureType());
+            };
+        }
+    }
+
+    public SignatureValue signWithToken(SigningKey key, PreparedSignature prepared) {
+        try (var _ = Metrics.time("token_signature")) {
+            return key.sign(prepared.getDataToSign(), getParameters().getDigestAlgorithm());
+        }
+    }
+
+    /**
+     * Last stage of signing, embeds the signature value into the document. Timestamps are requested here.
+     */
+    public DSSDocument completeSignature(PreparedSignature prepared, SignatureValue signatureValue) {
+        try (var _ = temporaryDocuments.bind(); var _ = Metrics.time("signature_complete")) {
+            return prepared.complete(signatureValue);
+        }
+    }
+
+    /**
+     * Hand the signed document to the responder, large documents are temporary files deleted afterwards
+     * unless the responder keeps them, see {@link SignedDocument#keep()}.
+     */
+    public void respond(DSSDocument signedDocument, SigningKey key) {
+        try (var _ = Metrics.time("response_write")) {
+            responder.onDocumentSigned(new SignedDocument(signedDocument, key.getCertificate(), temporaryDocuments));
+        } finally {
+            temporaryDocuments.discard();
+            releaseDocument();
+        }
+        trace.log("signed");
     }
 
     public void onDocumentSignFailed(AutogramException e) {
-        responder.onDocumentSignFailed(e);
+        try (var _ = trace.bind()) {
+            temporaryDocuments.discard();
+            releaseDocument();
+            responder.onDocumentSignFailed(e);
+            trace.log("failed with " + e.getClass().getSimpleName());
+        }
+    }
+
+    // the job has ended, a mapped file must not stay locked until the document is garbage collected
+    private void releaseDocument() {
+        if (document instanceof MappedFileDocument mapped)
+            mapped.release();
     }
 
-    private DSSDocument signDocumentAsCAdeS(SigningKey key) {
-        var commonCertificateVerifier = new CommonCertificateVerifier();
-        commonCertificateVerifier.setAlertOnExpiredCertificate(new LogOnStatusAlert()); // expired certificates are filtered on UI level
-        var service = new CAdESService(commonCertificateVerifier);
-        var jobParameters = getParameters();
+    private PreparedSignature prepareCAdeS(SigningKey key) {
         var signatureParameters = getParameters().getCAdESSignatureParameters();
+        var isTimestamped = signatureParameters.getSignatureLevel().equals(SignatureLevel.CAdES_BASELINE_T);
+        var service = SignatureServices.getCAdESService(isTimestamped ? getParameters().getTspSource() : null);
 
         signatureParameters.setSigningCertificate(key.getCertificate());
         signatureParameters.setCertificateChain(key.getCertificateChain());
 
-        var dataToSign = service.getDataToSign(getDocument(), signatureParameters);
-        var signatureValue = key.sign(dataToSign, jobParameters.getDigestAlgorithm());
-
-        return service.signDocument(getDocument(), signatureParameters, signatureValue);
+        return PreparedSignature.prepare(service, getDocument(), signatureParameters);
     }
 
-    private DSSDocument signDocumentAsAsiCWithXAdeS(SigningKey key) {
-        var commonCertificateVerifier = new CommonCertificateVerifier();
-        commonCertificateVerifier.setAlertOnExpiredCertificate(new LogOnStatusAlert()); // expired certificates are filtered on UI level
-        var service = new ASiCWithXAdESService(commonCertificateVerifier);
+    private PreparedSignature prepareAsiCWithXAdeS(SigningKey key) {
         var signatureParameters = getParameters().getASiCWithXAdESSignatureParameters();
+        var isTimestamped = signatureParameters.getSignatureLevel().equals(SignatureLevel.XAdES_BASELINE_T);
+        var service = SignatureServices.getASiCWithXAdESService(isTimestamped ? getParameters().getTspSource() : null);
 
         signatureParameters.setSigningCertificate(key.getCertificate());
         signatureParameters.setCertificateChain(key.getCertificateChain());
 
-        if (signatureParameters.getSignatureLevel().equals(SignatureLevel.XAdES_BASELINE_T))
-            service.setTspSource(getParameters().getTspSource());
-
-        var dataToSign = service.getDataToSign(getDocument(), signatureParameters);
-        var signatureValue = key.sign(dataToSign, getParameters().getDigestAlgorithm());
-
-        return service.signDocument(getDocument(), signatureParameters, signatureValue);
+        return PreparedSignature.prepare(service, getDocument(), signatureParameters);
     }
 
-    private DSSDocument signDocumentAsXAdeS(SigningKey key) {
-        var commonCertificateVerifier = new CommonCertificateVerifier();
-        commonCertificateVerifier.setAlertOnExpiredCertificate(new LogOnStatusAlert()); // expired certificates are filtered on UI level
-        var service = new XAdESService(commonCertificateVerifier);
-        var jobParameters = getParameters();
+    private PreparedSignature prepareXAdeS(SigningKey key) {
         var signatureParameters = getParameters().getXAdESSignatureParameters();
+        var isTimestamped = signatureParameters.getSignatureLevel().equals(SignatureLevel.XAdES_BASELINE_T);
+        var service = SignatureServices.getXAdESService(isTimestamped ? getParameters().getTspSource() : null);
 
         signatureParameters.setSigningCertificate(key.getCertificate());
         signatureParameters.setCertificateChain(key.getCertificateChain());
 
-        var dataToSign = service.getDataToSign(getDocument(), signatureParameters);
-        var signatureValue = key.sign(dataToSign, jobParameters.getDigestAlgorithm());
-
-        return service.signDocument(getDocument(), signatureParameters, signatureValue);
+        return PreparedSignature.prepare(service, getDocument(), signatureParameters);
     }
 
-    private DSSDocument signDocumentAsASiCWithCAdeS(SigningKey key) {
-        var commonCertificateVerifier = new CommonCertificateVerifier();
-        commonCertificateVerifier.setAlertOnExpiredCertificate(new LogOnStatusAlert()); // expired certificates are filtered on UI level
-        var service = new ASiCWithCAdESService(commonCertificateVerifier);
-        var jobParameters = getParameters();
+    private PreparedSignature prepareASiCWithCAdeS(SigningKey key) {
         var signatureParameters = getParameters().getASiCWithCAdESSignatureParameters();
+        var isTimestamped = signatureParameters.getSignatureLevel().equals(SignatureLevel.CAdES_BASELINE_T);
+        var service = SignatureServices.getASiCWithCAdESService(isTimestamped ? getParameters().getTspSource() : null);
 
         signatureParameters.setSigningCertificate(key.getCertificate());
         signatureParameters.setCertificateChain(key.getCertificateChain());
 
-        if (signatureParameters.getSignatureLevel().equals(SignatureLevel.CAdES_BASELINE_T))
-            service.setTspSource(getParameters().getTspSource());
-
-        var dataToSign = service.getDataToSign(getDocument(), signatureParameters);
-        var signatureValue = key.sign(dataToSign, jobParameters.getDigestAlgorithm());
-
-        return service.signDocument(getDocument(), signatureParameters, signatureValue);
+        return PreparedSignature.prepare(service, getDocument(), signatureParameters);
     }
 
-    private DSSDocument signDocumentAsPAdeS(SigningKey key) {
-        var commonCertificateVerifier = new CommonCertificateVerifier();
-        commonCertificateVerifier.setAlertOnExpiredCertificate(new LogOnStatusAlert()); // expired certificates are filtered on UI level
-        var service = new PAdESService(commonCertificateVerifier);
-        var jobParameters = getParameters();
+    private PreparedSignature preparePAdeS(SigningKey key) {
         var signatureParameters = getParameters().getPAdESSignatureParameters();
+        var isTimestamped = signatureParameters.getSignatureLevel().equals(SignatureLevel.PAdES_BASELINE_T);
+        var service = SignatureServices.getPAdESService(isTimestamped ? getParameters().getTspSource() : null);
 
         signatureParameters.setSigningCertificate(key.getCertificate());
         signatureParameters.setCertificateChain(key.getCertificateChain());
 
-        if (signatureParameters.getSignatureLevel().equals(SignatureLevel.PAdES_BASELINE_T)) {
-            service.setTspSource(getParameters().getTspSource());
+        if (isTimestamped)
             signatureParameters.setContentSize(9472*2);
-        }
-
-        var dataToSign = service.getDataToSign(getDocument(), signatureParameters);
-        var signatureValue = key.sign(dataToSign, jobParameters.getDigestAlgorithm());
 
-        return service.signDocument(getDocument(), signatureParameters, signatureValue);
+        return PreparedSignature.prepare(service, getDocument(), signatureParameters);
     }
 
     public static FileDocument createDSSFileDocumentFromFile(File file) {
-        var fileDocument = new FileDocument(file);
+        var fileDocument = new MappedFileDocument(file);
 
         if (fileDocument.getName().endsWith(".xdcf"))
             fileDocument.setMimeType(XML_DATACONTAINER_WITH_CHARSET);
@@ -170,8 +202,13 @@ public class SigningJob {
     }
 
     private static SigningJob build(DSSDocument document, SigningParameters params, Responder responder) {
-        if (params.shouldCreateXdc() && !isXDC(document.getMimeType()) && !isAsice(document.getMimeType()))
-            document = XDCBuilder.transform(params, document.getName(), EFormUtils.getXmlFromDocument(document));
+        if (params.shouldCreateXdc() && !isXDC(document.getMimeType()) && !isAsice(document.getMimeType())) {
+            var source = document;
+            document = XDCBuilder.transform(params, source.getName(), EFormUtils.getXmlFromDocument(source));
+            // only the built container is signed
+            if (source instanceof MappedFileDocument mapped)
+                mapped.release();
+        }
 
         if (isTxt(document.getMimeType()))
             document.setMimeType(AutogramMimeType.TEXT_WITH_CHARSET);
@@ -8,6 +8,8 @@ import digital.slovensko.autogram.core.errors.AutogramException;
 import digital.slovensko.autogram.core.errors.SigningParametersException;
 import digital.slovensko.autogram.core.errors.UnknownEformException;
 import digital.slovensko.autogram.util.AsicContainerUtils;
+import digital.slovensko.autogram.util.Metrics;
+import digital.slovensko.autogram.util.TemporaryDocuments;
 import eu.europa.esig.dss.asic.cades.ASiCWithCAdESSignatureParameters;
 import eu.europa.esig.dss.asic.xades.ASiCWithXAdESSignatureParameters;
 import eu.europa.esig.dss.cades.CAdESSignatureParameters;
@@ -80,49 +82,59 @@ public class SigningParameters {
         if (digestAlgorithm == null)
             digestAlgorithm = DigestAlgorithm.SHA256;
 
-        var extractedDocument = document;
-        if (AutogramMimeType.isAsice(document.getMimeType()))
-            extractedDocument = AsicContainerUtils.getOriginalDocument(document);
+        // entries of large containers are extracted to temporary files, they are not needed after this method
+        var temporaryDocuments = new TemporaryDocuments();
+        try (var _ = temporaryDocuments.bind()) {
+            var extractedDocument = document;
+            if (AutogramMimeType.isAsice(document.getMimeType()))
+                extractedDocument = AsicContainerUtils.getOriginalDocument(document);
 
-        if (AutogramMimeType.isXML(extractedDocument.getMimeType()) && XDCValidator.isXDCContent(extractedDocument))
-            extractedDocument.setMimeType(AutogramMimeType.XML_DATACONTAINER);
+            if (AutogramMimeType.isXML(extractedDocument.getMimeType()) && XDCValidator.isXDCContent(extractedDocument))
+                extractedDocument.setMimeType(AutogramMimeType.XML_DATACONTAINER);
 
-        fsFormId = EFormUtils.translateFsFormId(fsFormId);
-        eFormAttributes = EFormAttributes.build(eFormAttributes, autoLoadEform, fsFormId, extractedDocument, propertiesCanonicalization);
+            fsFormId = EFormUtils.translateFsFormId(fsFormId);
+            try (var _ = Metrics.time("eform_resolution")) {
+                eFormAttributes = EFormAttributes.build(eFormAttributes, autoLoadEform, fsFormId, extractedDocument, propertiesCanonicalization);
+            }
 
-        var extractedDocumentMimeType = extractedDocument.getMimeType();
+            var extractedDocumentMimeType = extractedDocument.getMimeType();
 
-        if (eFormAttributes.containerXmlns() != null && eFormAttributes.containerXmlns().contains("xmldatacontainer")) {
-            if (container == null) container = ASiCContainerType.ASiC_E;
+            if (eFormAttributes.containerXmlns() != null && eFormAttributes.containerXmlns().contains("xmldatacontainer")) {
+                if (container == null) container = ASiCContainerType.ASiC_E;
 
-            if (packaging == null) packaging = SignaturePackaging.ENVELOPING;
+                if (packaging == null) packaging = SignaturePackaging.ENVELOPING;
 
-            if (!AutogramMimeType.isXML(extractedDocumentMimeType) && !AutogramMimeType.isXDC(extractedDocumentMimeType))
-                throw new SigningParametersException(WRONG_MIME_TYPE);
-        }
+                if (!AutogramMimeType.isXML(extractedDocumentMimeType) && !AutogramMimeType.isXDC(extractedDocumentMimeType))
+                    throw new SigningParametersException(WRONG_MIME_TYPE);
+            }
 
-        if (AutogramMimeType.isXDC(extractedDocumentMimeType) || AutogramMimeType.isXML(extractedDocumentMimeType)) {
-            XDCValidator.validateXml(
-                    eFormAttributes.schema(), eFormAttributes.transformation(), extractedDocument,
-                    propertiesCanonicalization, digestAlgorithm, eFormAttributes.embedUsedSchemas());
-        }
+            if (AutogramMimeType.isXDC(extractedDocumentMimeType) || AutogramMimeType.isXML(extractedDocumentMimeType)) {
+                try (var _ = Metrics.time("xsd_validation")) {
+                    XDCValidator.validateXml(
+                            eFormAttributes.schema(), eFormAttributes.transformation(), extractedDocument,
+                            propertiesCanonicalization, digestAlgorithm, eFormAttributes.embedUsedSchemas());
+                }
+            }
 
-        if (!AutogramMimeType.isXDC(extractedDocumentMimeType)) {
-            // if the document is not an XML resulting in XML Datacontainer, ignore all eForm attributes (mainly transformation)
-            if (eFormAttributes.containerXmlns() == null || !eFormAttributes.containerXmlns().contains("xmldatacontainer")) {
-                if (eFormAttributes.transformation() != null)
-                    throw new SigningParametersException(XSLT_NO_XDC);
+            if (!AutogramMimeType.isXDC(extractedDocumentMimeType)) {
+                // if the document is not an XML resulting in XML Datacontainer, ignore all eForm attributes (mainly transformation)
+                if (eFormAttributes.containerXmlns() == null || !eFormAttributes.containerXmlns().contains("xmldatacontainer")) {
+                    if (eFormAttributes.transformation() != null)
+                        throw new SigningParametersException(XSLT_NO_XDC);
 
-                eFormAttributes = new EFormAttributes(null, null, null, null, null, null, false);
+                    eFormAttributes = new EFormAttributes(null, null, null, null, null, null, false);
+                }
             }
-        }
 
-        if (!plainXmlEnabled && (AutogramMimeType.isXML(extractedDocumentMimeType) || AutogramMimeType.isXDC(extractedDocumentMimeType)) && (eFormAttributes.transformation() == null))
-            throw new UnknownEformException();
+            if (!plainXmlEnabled && (AutogramMimeType.isXML(extractedDocumentMimeType) || AutogramMimeType.isXDC(extractedDocumentMimeType)) && (eFormAttributes.transformation() == null))
+                throw new UnknownEformException();
 
-        return new SigningParameters(
-                level, digestAlgorithm, container, packaging, en319132, infoCanonicalization, propertiesCanonicalization,
-                keyInfoCanonicalization, eFormAttributes, checkPDFACompliance, preferredPreviewWidth, tspSource);
+            return new SigningParameters(
+                    level, digestAlgorithm, container, packaging, en319132, infoCanonicalization, propertiesCanonicalization,
+                    keyInfoCanonicalization, eFormAttributes, checkPDFACompliance, preferredPreviewWidth, tspSource);
+        } finally {
+            temporaryDocuments.discard();
+        }
     }
 
     public static SigningParameters buildForPDF(DSSDocument document, boolean checkPDFACompliance, boolean signAsEn319132, TSPSource tspSource) throws AutogramException {
@@ -182,7 +194,8 @@ public class SigningParameters {
 
         parameters.setSignatureLevel(getLevel());
         parameters.setDigestAlgorithm(getDigestAlgorithm());
-        parameters.setSignaturePackaging(SignaturePackaging.ENVELOPING);
+        // a detached signature is created when only the digest of the document is known
+        parameters.setSignaturePackaging(packaging == SignaturePackaging.DETACHED ? SignaturePackaging.DETACHED : SignaturePackaging.ENVELOPING);
         parameters.setEn319122(isEn319132());
 
         return parameters;
@@ -0,0 +1,24 @@
+package digital.slovensko.autogram.core;
+
+import digital.slovensko.autogram.util.Metrics;
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.TimestampBinary;
+import eu.europa.esig.dss.spi.x509.tsp.TSPSource;
+
+/**
+ * Records the duration of calls to a timestamping authority.
+ */
+public class TimedTSPSource implements TSPSource {
+    private final TSPSource tspSource;
+
+    public TimedTSPSource(TSPSource tspSource) {
+        this.tspSource = tspSource;
+    }
+
+    @Override
+    public TimestampBinary getTimeStampResponse(DigestAlgorithm digestAlgorithm, byte[] digest) {
+        try (var _ = Metrics.time("tsa")) {
+            return tspSource.getTimeStampResponse(digestAlgorithm, digest);
+        }
+    }
+}
@@ -3,9 +3,7 @@ package digital.slovensko.autogram.core;
 import digital.slovensko.autogram.ui.SupportedLanguage;
 import digital.slovensko.autogram.ui.gui.SignatureLevelStringConverter;
 import eu.europa.esig.dss.enumerations.SignatureLevel;
-import eu.europa.esig.dss.service.http.commons.TimestampDataLoader;
 import eu.europa.esig.dss.service.tsp.OnlineTSPSource;
-import eu.europa.esig.dss.spi.x509.tsp.CompositeTSPSource;
 import eu.europa.esig.dss.spi.x509.tsp.TSPSource;
 
 import java.nio.file.Files;
@@ -60,7 +58,8 @@ public class UserSettings implements PasswordManagerSettings, SignatureTokenSett
     private List<String> trustedList;
     private String customKeystorePath;
     private String tsaServer;
-    private CompositeTSPSource tspSource;
+    private TSPSource tspSource;
+    private PooledTimestampDataLoader timestampDataLoader;
     private boolean tsaEnabled;
     private String customTsaServer;
     private boolean bulkEnabled;
@@ -324,6 +323,11 @@ public class UserSettings implements PasswordManagerSettings, SignatureTokenSett
     }
 
     public void setTsaServer(String value) {
+        // connections kept for the replaced TSA servers are not needed anymore, jobs in progress may finish on them
+        if (timestampDataLoader != null)
+            timestampDataLoader.close();
+        timestampDataLoader = null;
+
         if (value == null || value.isEmpty()) {
             tspSource = null;
             return;
@@ -334,13 +338,13 @@ public class UserSettings implements PasswordManagerSettings, SignatureTokenSett
             value = "http://tsa.baltstamp.lt,http://ts.quovadisglobal.com/eu";
 
         tsaServer = value;
-        tspSource = new CompositeTSPSource();
-        var timestampDataLoader = new TimestampDataLoader();
+        // batch documents are completed in parallel, each of them may keep a connection to the TSA
+        timestampDataLoader = new PooledTimestampDataLoader(Integer.parseInt(Configuration.getProperty("batch.pipeline.threads")));
         var tspSources = new LinkedHashMap<String, TSPSource>();
         for (var tsaServer : tsaServer.split(","))
             tspSources.put(tsaServer, new OnlineTSPSource(tsaServer, timestampDataLoader));
 
-        tspSource.setTspSources(tspSources);
+        tspSource = new TimedTSPSource(new HedgedTSPSource(tspSources));
     }
 
     public String getCustomTsaServer() {
@@ -0,0 +1,7 @@
+package digital.slovensko.autogram.core.errors;
+
+public class ServerNotCreatedException extends AutogramException {
+    public ServerNotCreatedException(Throwable e) {
+        super(e);
+    }
+}
@@ -31,14 +31,18 @@ public class DocumentVisualizationBuilder {
     }
 
     public static Visualization fromJob(SigningJob job, UserSettings userSettings) throws IOException, ParserConfigurationException, SAXException {
-        return new DocumentVisualizationBuilder(job.getDocument(), job.getParameters()).build(job, userSettings);
+        return fromJob(job, userSettings.getPdfDpi());
     }
 
-    private Visualization build(SigningJob job, UserSettings userSettings) throws IOException, ParserConfigurationException, SAXException {
-        return createVisualization(job, userSettings);
+    public static Visualization fromJob(SigningJob job, int pdfDpi) throws IOException, ParserConfigurationException, SAXException {
+        return new DocumentVisualizationBuilder(job.getDocument(), job.getParameters()).build(job, pdfDpi);
     }
 
-    private Visualization createVisualization(SigningJob job, UserSettings userSettings)
+    private Visualization build(SigningJob job, int pdfDpi) throws IOException, ParserConfigurationException, SAXException {
+        return createVisualization(job, pdfDpi);
+    }
+
+    private Visualization createVisualization(SigningJob job, int pdfDpi)
         throws IOException, ParserConfigurationException, SAXException {
 
         var documentToDisplay = document;
@@ -74,7 +78,7 @@ public class DocumentVisualizationBuilder {
             return new PlainTextVisualization(new String(documentToDisplay.openStream().readAllBytes(), StandardCharsets.UTF_8), job);
 
         if (isPDF(documentToDisplay.getMimeType()))
-            return new PDFVisualization(documentToDisplay, job, userSettings);
+            return new PDFVisualization(documentToDisplay, job, pdfDpi);
 
         if (isImage(documentToDisplay.getMimeType()))
             return new ImageVisualization(documentToDisplay, job);
@@ -5,7 +5,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 
 import digital.slovensko.autogram.core.SigningJob;
-import digital.slovensko.autogram.core.UserSettings;
 import digital.slovensko.autogram.ui.Visualizer;
 import eu.europa.esig.dss.model.DSSDocument;
 import org.apache.pdfbox.Loader;
@@ -16,13 +15,13 @@ import javax.imageio.ImageIO;
 
 public class PDFVisualization extends Visualization {
     private final DSSDocument document;
-    private final UserSettings settings;
+    private final int dpi;
 
 
-    public PDFVisualization(DSSDocument document, SigningJob job, UserSettings settings) {
+    public PDFVisualization(DSSDocument document, SigningJob job, int dpi) {
         super(job);
         this.document = document;
-        this.settings = settings;
+        this.dpi = dpi;
     }
 
     private ArrayList<byte []> getPdfImages() throws IOException {
@@ -31,7 +30,7 @@ public class PDFVisualization extends Visualization {
         var divs = new ArrayList<byte[]>();
         for (int page = 0; page < pdfDocument.getNumberOfPages(); ++page) {
             var os = new ByteArrayOutputStream();
-            var bim = pdfRenderer.renderImageWithDPI(page, settings.getPdfDpi(), ImageType.RGB);
+            var bim = pdfRenderer.renderImageWithDPI(page, dpi, ImageType.RGB);
             ImageIO.write(bim, "png", os);
             divs.add(os.toByteArray());
         }
@@ -0,0 +1,85 @@
+package digital.slovensko.autogram.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of signing jobs waiting for the user, in total and per origin.
+ *
+ * Every job opens a dialog in the desktop application, so jobs over the limit are refused
+ * instead of being queued.
+ */
+public class AdmissionControl {
+    private final int maxPendingJobs;
+    private final int maxPendingJobsPerOrigin;
+    private final AtomicInteger pendingJobs = new AtomicInteger();
+    private final ConcurrentHashMap<String, Integer> pendingJobsByOrigin = new ConcurrentHashMap<>();
+
+    public AdmissionControl(int maxPendingJobs, int maxPendingJobsPerOrigin) {
+        this.maxPendingJobs = maxPendingJobs;
+        this.maxPendingJobsPerOrigin = maxPendingJobsPerOrigin;
+    }
+
+    /**
+     * Returns a ticket for a new job from the origin, or null if there are too many pending jobs.
+     */
+    public Ticket tryAdmit(String origin) {
+        if (pendingJobs.incrementAndGet() > maxPendingJobs) {
+            pendingJobs.decrementAndGet();
+            return null;
+        }
+
+        var admitted = new AtomicBoolean(false);
+        pendingJobsByOrigin.compute(origin, (_, count) -> {
+            var current = count == null ? 0 : count;
+            if (current >= maxPendingJobsPerOrigin)
+                return count;
+
+            admitted.set(true);
+            return current + 1;
+        });
+
+        if (!admitted.get()) {
+            pendingJobs.decrementAndGet();
+            return null;
+        }
+
+        return new Ticket(origin);
+    }
+
+    public int getPendingJobsCount() {
+        return pendingJobs.get();
+    }
+
+    private void release(String origin) {
+        pendingJobs.decrementAndGet();
+        pendingJobsByOrigin.computeIfPresent(origin, (_, count) -> count <= 1 ? null : count - 1);
+    }
+
+    public class Ticket {
+        private final String origin;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private volatile boolean handedOver = false;
+
+        private Ticket(String origin) {
+            this.origin = origin;
+        }
+
+        /**
+         * The job was submitted, the ticket is released by the job responder from now on.
+         */
+        public void handOver() {
+            handedOver = true;
+        }
+
+        public boolean isHandedOver() {
+            return handedOver;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true))
+                AdmissionControl.this.release(origin);
+        }
+    }
+}
@@ -2,15 +2,15 @@ package digital.slovensko.autogram.server;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import digital.slovensko.autogram.server.dto.ErrorResponse;
 import digital.slovensko.autogram.server.errors.InvalidUrlParamException;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static digital.slovensko.autogram.server.errors.InvalidUrlParamException.Error.ASSET_NOT_FOUND;
 import static digital.slovensko.autogram.server.errors.InvalidUrlParamException.Error.MISSING_ASSET_NAME;
-import static java.util.Objects.requireNonNull;
 
 public class AssetsEndpoint implements HttpHandler {
     private static final List<String> assets;
@@ -21,6 +21,16 @@ public class AssetsEndpoint implements HttpHandler {
         );
     }
 
+    // asset names are versioned, so a cached copy never has to be revalidated
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private final Map<String, StaticResource> resources = new HashMap<>();
+
+    public AssetsEndpoint() {
+        for (var asset : assets)
+            resources.put(asset, StaticResource.load(getClass(), "assets/" + asset, getAssetMimeType(asset), CACHE_CONTROL));
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         var fileName = exchange.getRequestURI().getPath().replaceFirst("/assets/?", "");
@@ -29,20 +39,11 @@ public class AssetsEndpoint implements HttpHandler {
             if (fileName.isBlank())
                 throw new InvalidUrlParamException(MISSING_ASSET_NAME);
 
-            if (!assets.contains(fileName))
+            var resource = resources.get(fileName);
+            if (resource == null)
                 throw new InvalidUrlParamException(ASSET_NOT_FOUND);
 
-            var stream = getClass().getResourceAsStream("assets/" + fileName);
-            if (stream == null)
-                throw new InvalidUrlParamException(ASSET_NOT_FOUND);
-
-            try (exchange) {
-                exchange.getResponseHeaders().set("Content-Type", getAssetMimeType(fileName));
-                exchange.sendResponseHeaders(200, 0);
-                requireNonNull(stream).transferTo(exchange.getResponseBody());
-            }
-
-            stream.close();
+            resource.respond(exchange);
         } catch (IOException | InvalidUrlParamException e) {
             EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(e), exchange);
         }
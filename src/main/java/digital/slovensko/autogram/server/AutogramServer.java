@@ -2,114 +2,161 @@ package digital.slovensko.autogram.server;
 
 import static digital.slovensko.autogram.core.Configuration.getProperty;
 
-import java.io.FileInputStream;
-import java.net.BindException;
-import java.net.InetSocketAddress;
-import java.nio.file.Paths;
-import java.security.KeyStore;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.ServiceLoader;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import javax.net.ssl.KeyManagerFactory;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManagerFactory;
-import com.sun.net.httpserver.HttpServer;
-import com.sun.net.httpserver.HttpsConfigurator;
-import com.sun.net.httpserver.HttpsParameters;
-import com.sun.net.httpserver.HttpsServer;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 
 import digital.slovensko.autogram.core.Autogram;
-import digital.slovensko.autogram.core.errors.PortIsUsedException;
+import digital.slovensko.autogram.server.filters.AdmissionFilter;
 import digital.slovensko.autogram.server.filters.AutogramCorsFilter;
+import digital.slovensko.autogram.server.filters.BulkheadFilter;
+import digital.slovensko.autogram.util.Metrics;
 
 public class AutogramServer {
-    private final HttpServer server;
+    private final List<ServerTransport> transports = new ArrayList<>();
     private final Autogram autogram;
+    private final ExecutorService executorService;
+    private final AdmissionControl admissionControl;
+    private final LocalFiles localFiles;
+    private final ValidationPool validationPool;
 
-    public AutogramServer(Autogram autogram, String hostname, int port, boolean isHttps, ExecutorService executorService, ResourceBundle languageResources) {
+    public AutogramServer(Autogram autogram, String hostname, int port, boolean isHttps, ResourceBundle languageResources) {
+        this(autogram, hostname, port, isHttps, null, languageResources);
+    }
+
+    public AutogramServer(Autogram autogram, String hostname, int port, boolean isHttps, Path unixSocket, ResourceBundle languageResources) {
+        this(autogram, hostname, port, isHttps, unixSocket, List.of(), languageResources);
+    }
+
+    /**
+     * @param unixSocket path of a Unix domain socket serving the same endpoints, or null
+     * @param signingDirectories directories whose files local integrations can sign by path, empty to disable it
+     */
+    public AutogramServer(Autogram autogram, String hostname, int port, boolean isHttps, Path unixSocket,
+            List<Path> signingDirectories, ResourceBundle languageResources) {
         this.autogram = autogram;
-        this.server = buildServer(hostname, port, isHttps, languageResources);
-        this.server.setExecutor(executorService);
+        this.localFiles = new LocalFiles(signingDirectories);
+        this.validationPool = new ValidationPool(Integer.parseInt(getProperty("server.validation.threads")),
+                Integer.parseInt(getProperty("server.validation.queueSize")),
+                Duration.ofSeconds(Long.parseLong(getProperty("server.validation.timeoutSeconds"))));
+        this.executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("autogram-server-", 0).factory());
+        ErrorResponseBuilder.init(languageResources);
+        this.transports.add(createTcpTransport(hostname, port, isHttps, executorService));
+        if (unixSocket != null)
+            this.transports.add(new UnixSocketTransport(unixSocket, executorService));
+        this.admissionControl = new AdmissionControl(Integer.parseInt(getProperty("server.admission.maxPendingJobs")),
+                Integer.parseInt(getProperty("server.admission.maxPendingJobsPerOrigin")));
     }
 
     public void start() {
+        // Signing endpoints process whole documents, info endpoints have to stay responsive meanwhile
+        var timeout = Long.parseLong(getProperty("server.bulkhead.timeoutSeconds"));
+        var signingBulkhead = new BulkheadFilter("signing", Integer.parseInt(getProperty("server.bulkhead.signing.maxConcurrency")), timeout);
+        var infoBulkhead = new BulkheadFilter("info", Integer.parseInt(getProperty("server.bulkhead.info.maxConcurrency")), timeout);
+        var jobsBulkhead = new BulkheadFilter("jobs", Integer.parseInt(getProperty("server.bulkhead.jobs.maxConcurrency")), timeout);
+        var validationBulkhead = new BulkheadFilter("validation", Integer.parseInt(getProperty("server.bulkhead.validation.maxConcurrency")), timeout);
+
+        // Every signing job waits for the user, refuse new ones instead of flooding the desktop
+        var admission = new AdmissionFilter(admissionControl, Long.parseLong(getProperty("server.admission.retryAfterSeconds")));
+
+        // Metrics
+        var jobs = new ServerJobs(Duration.ofSeconds(Long.parseLong(getProperty("server.jobs.ttlSeconds"))));
+        registerGauges(jobs, signingBulkhead, infoBulkhead, jobsBulkhead, validationBulkhead);
+        createContext("/metrics", new MetricsEndpoint(), new AutogramCorsFilter("GET"), infoBulkhead);
+
         // Info
-        server.createContext("/info", new InfoEndpoint(autogram)).getFilters()
-                .add(new AutogramCorsFilter("GET"));
+        createContext("/info", new InfoEndpoint(autogram, admissionControl), new AutogramCorsFilter("GET"), infoBulkhead);
 
         // Certificates
-        server.createContext("/certificates", new CertificatesEndpoint(autogram)).getFilters()
-                .add(new AutogramCorsFilter("GET"));
+        createContext("/certificates", new CertificatesEndpoint(autogram), new AutogramCorsFilter("GET"), signingBulkhead);
 
         // Documentation
-        server.createContext("/docs", new DocumentationEndpoint());
+        createContext("/docs", new DocumentationEndpoint(), infoBulkhead);
 
         // Sign
-        server.createContext("/sign", new SignEndpoint(autogram)).getFilters()
-                .add(new AutogramCorsFilter("POST"));
+        // Retried requests with the same Idempotency-Key get the outcome of the first one instead of another dialog
+        var idempotencyStore = new IdempotencyStore(Integer.parseInt(getProperty("server.idempotency.maxEntries")),
+                Duration.ofSeconds(Long.parseLong(getProperty("server.idempotency.ttlSeconds"))));
+        createContext("/sign", new SignEndpoint(autogram, idempotencyStore, localFiles),
+                new AutogramCorsFilter(List.of("POST"), List.of(EndpointUtils.REQUEST_ID_HEADER, SignEndpoint.IDEMPOTENCY_KEY_HEADER),
+                        List.of("Retry-After", EndpointUtils.REQUEST_ID_HEADER, EndpointUtils.SERVER_TIMING_HEADER,
+                                SignEndpoint.IDEMPOTENT_REPLAYED_HEADER)),
+                admission, signingBulkhead);
+        createContext("/sign/raw", new RawSignEndpoint(autogram, idempotencyStore),
+                new AutogramCorsFilter(List.of("POST"),
+                        List.of(RawSignEndpoint.SIGN_REQUEST_HEADER, RawSignEndpoint.FILENAME_HEADER, EndpointUtils.REQUEST_ID_HEADER,
+                                SignEndpoint.IDEMPOTENCY_KEY_HEADER),
+                        List.of(RawServerResponder.SIGNED_BY_HEADER, RawServerResponder.ISSUED_BY_HEADER, "Retry-After",
+                                EndpointUtils.REQUEST_ID_HEADER, EndpointUtils.SERVER_TIMING_HEADER, SignEndpoint.IDEMPOTENT_REPLAYED_HEADER)),
+                admission, signingBulkhead);
+
+        // Validate
+        // Runs on its own bounded pool and bulkhead, so validating many documents cannot slow down signing
+        createContext("/validate", new ValidateEndpoint(validationPool), new AutogramCorsFilter("POST"), validationBulkhead);
+
+        // Visualize
+        var visualizationCache = new VisualizationCache(Long.parseLong(getProperty("server.visualization.cacheMaxBytes")));
+        Metrics.registerGauge("autogram_visualization_cache_bytes", "Size of rendered visualizations kept in memory.", "",
+                visualizationCache::size);
+        createContext("/visualize", new VisualizeEndpoint(autogram, visualizationCache), new AutogramCorsFilter("POST"),
+                signingBulkhead);
+
+        // Jobs
+        var maxWait = Duration.ofSeconds(Long.parseLong(getProperty("server.jobs.maxWaitSeconds")));
+        createContext("/jobs", new JobsEndpoint(autogram, jobs, maxWait), new AutogramCorsFilter(List.of("POST", "GET"),
+                List.of(EndpointUtils.REQUEST_ID_HEADER), List.of("Location", "Retry-After", EndpointUtils.REQUEST_ID_HEADER, EndpointUtils.SERVER_TIMING_HEADER)),
+                admission, jobsBulkhead);
 
         // Batch
-        server.createContext("/batch", new BatchEndpoint(autogram)).getFilters()
-                .add(new AutogramCorsFilter(List.of("POST", "DELETE")));
+        // Progress event streams are long-lived, they must not hold signing permits
+        Predicate<HttpExchange> isEventStream = exchange -> exchange.getRequestMethod().equalsIgnoreCase("GET");
+        createContext("/batch", new BatchEndpoint(autogram), new AutogramCorsFilter(List.of("POST", "DELETE", "GET")),
+                signingBulkhead.excluding(isEventStream), infoBulkhead.excluding(isEventStream.negate()));
 
         // Assets
-        server.createContext("/assets", new AssetsEndpoint()).getFilters()
-                .add(new AutogramCorsFilter("GET"));
+        createContext("/assets", new AssetsEndpoint(), new AutogramCorsFilter("GET"), infoBulkhead);
 
         // Start server
-        server.start();
+        for (var transport : transports)
+            transport.start();
+    }
+
+    private void registerGauges(ServerJobs jobs, BulkheadFilter... bulkheads) {
+        Metrics.registerGauge("autogram_pending_jobs", "Signing jobs waiting for the user.", "",
+                admissionControl::getPendingJobsCount);
+        Metrics.registerGauge("autogram_jobs", "Jobs submitted to /jobs and not yet expired.", "", jobs::size);
+        Metrics.registerGauge("autogram_validation_queued", "Documents waiting for a validation thread.", "",
+                validationPool::getQueuedCount);
+        for (var bulkhead : bulkheads)
+            Metrics.registerGauge("autogram_bulkhead_available_permits", "Exchanges a bulkhead can still admit.",
+                    "bulkhead=\"" + bulkhead.getName() + "\"", bulkhead::getAvailablePermits);
+    }
+
+    private static ServerTransport createTcpTransport(String hostname, int port, boolean isHttps, Executor executor) {
+        return ServiceLoader.load(ServerTransport.Factory.class).findFirst()
+                .map(factory -> factory.create(hostname, port, isHttps, executor))
+                .orElseGet(() -> new HttpServerTransport(hostname, port, isHttps, executor));
     }
 
-    private HttpServer buildServer(String hostname, int port, boolean isHttps, ResourceBundle languageResources) {
-        try {
-            ErrorResponseBuilder.init(languageResources);
-
-            if (!isHttps)
-                return HttpServer.create(new InetSocketAddress(hostname, port), 0);
-
-            var server = HttpsServer.create(new InetSocketAddress(hostname, port), 0);
-            var p12file = Paths.get(System.getProperty("user.home"), getProperty("file.ssl.pkcs12.cert"))
-                    .toFile();
-            char[] password = "".toCharArray();
-            var ks = KeyStore.getInstance("PKCS12");
-            ks.load(new FileInputStream(p12file), password);
-
-            var kmf = KeyManagerFactory.getInstance("SunX509");
-            kmf.init(ks, password);
-            var tmf = TrustManagerFactory.getInstance("SunX509");
-            tmf.init(ks);
-
-            var sslContext = SSLContext.getInstance("TLSv1.2");
-            sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
-
-            server.setHttpsConfigurator(new HttpsConfigurator(sslContext) {
-                public void configure(HttpsParameters params) {
-                    try {
-                        var c = SSLContext.getDefault();
-                        var engine = c.createSSLEngine();
-                        params.setNeedClientAuth(false);
-                        params.setCipherSuites(engine.getEnabledCipherSuites());
-                        params.setProtocols(engine.getEnabledProtocols());
-                        var defaultSSLParameters = c.getDefaultSSLParameters();
-                        params.setSSLParameters(defaultSSLParameters);
-                    } catch (Exception e) {
-                        throw new RuntimeException(e); // TODO
-                    }
-                }
-            });
-
-            return server;
-
-        } catch (BindException e) {
-            throw new PortIsUsedException();
-
-        } catch (Exception e) {
-            throw new RuntimeException("error.serverNotCreated", e); // TODO
-        }
+    private void createContext(String path, HttpHandler handler, Filter... filters) {
+        for (var transport : transports)
+            transport.createContext(path, handler, List.of(filters));
     }
 
     public void stop() {
-        ((ExecutorService) server.getExecutor()).shutdown(); // TODO find out why requests hang
-        server.stop(1);
+        executorService.shutdown(); // TODO find out why requests hang
+        validationPool.shutdown();
+        for (var transport : transports)
+            transport.stop();
     }
 }
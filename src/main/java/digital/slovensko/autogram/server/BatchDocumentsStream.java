@@ -0,0 +1,204 @@
+package digital.slovensko.autogram.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import digital.slovensko.autogram.core.Autogram;
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.core.ResponderInBatch;
+import digital.slovensko.autogram.core.SignedDocument;
+import digital.slovensko.autogram.core.SigningJob;
+import digital.slovensko.autogram.core.errors.AutogramException;
+import digital.slovensko.autogram.core.errors.ResponseNetworkErrorException;
+import digital.slovensko.autogram.core.errors.UnrecognizedException;
+import digital.slovensko.autogram.server.dto.ErrorResponse;
+import digital.slovensko.autogram.server.dto.SignRequestBody;
+import digital.slovensko.autogram.server.errors.MalformedBodyException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static digital.slovensko.autogram.core.Configuration.getProperty;
+import static digital.slovensko.autogram.server.errors.MalformedBodyException.Error.JSON_PARSING_FAILED;
+
+/**
+ * Sign a stream of documents in a batch.
+ *
+ * The request body is NDJSON of /sign request bodies, the response is NDJSON with one line per document
+ * in the same order: {"index": n, "status": s, "body": b}, where status and body are what /sign would
+ * respond with. Documents are submitted to the batch signing pipeline as they are read, at most
+ * {@link #MAX_PENDING} of them wait for their response line, so a client sending faster than documents
+ * are signed is held back by the socket.
+ */
+public class BatchDocumentsStream {
+    private final static Gson gson = new Gson();
+    private final static int MAX_PENDING = Integer.parseInt(getProperty("batch.pipeline.queueSize"));
+
+    private final Autogram autogram;
+    private final String batchId;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private OutputStream body;
+    private int index = 0;
+
+    public BatchDocumentsStream(Autogram autogram, String batchId) {
+        this.autogram = autogram;
+        this.batchId = batchId;
+    }
+
+    public void stream(HttpExchange exchange) throws IOException {
+        // fail before the response is started if the batch is not running
+        autogram.getBatch(batchId);
+
+        exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        try (var responseBody = exchange.getResponseBody()) {
+            body = responseBody;
+            try {
+                AutogramException failure = null;
+                try {
+                    EndpointUtils.forEachSignRequest(exchange, this::sign);
+                } catch (ResponseNetworkErrorException e) {
+                    throw e;
+                } catch (JsonParseException | IOException e) {
+                    // the rest of the stream cannot be read
+                    failure = new MalformedBodyException(JSON_PARSING_FAILED, e);
+                } catch (AutogramException e) {
+                    failure = e;
+                }
+
+                writePending(0);
+                if (failure != null) {
+                    var lineResponder = new LineResponder(index);
+                    lineResponder.onDocumentSignFailed(failure);
+                    lineResponder.write();
+                }
+            } catch (ResponseNetworkErrorException e) {
+                // client has closed the stream
+                abandonPending();
+            }
+        }
+    }
+
+    /**
+     * Release documents that will never be written, once they are signed.
+     */
+    private void abandonPending() {
+        for (var next : pending)
+            next.signed().whenComplete((result, e) -> next.responder().release());
+
+        pending.clear();
+    }
+
+    private void sign(SignRequestBody request) {
+        var lineResponder = new LineResponder(index++);
+        CompletableFuture<Void> signed;
+        try {
+            request.validateDocument();
+            request.validateSigningParameters();
+
+            var responder = new ResponderInBatch(new CleanupResponder(lineResponder, request::discard), autogram.getBatch(batchId));
+            var job = SigningJob.buildFromRequest(request.getDocument(), request.getParameters(autogram.getTspSource(), autogram.isPlainXmlEnabled()), responder);
+            signed = autogram.batchSignAsync(job, batchId);
+
+        } catch (Exception e) {
+            request.discard();
+            signed = CompletableFuture.failedFuture(e);
+        }
+
+        pending.add(new Pending(lineResponder, signed));
+        writePending(MAX_PENDING);
+    }
+
+    /**
+     * Write response lines in order, until at most the given number of documents are left waiting.
+     */
+    private void writePending(int keep) {
+        while (pending.size() > keep) {
+            var next = pending.poll();
+            var error = next.signed().handle((result, e) -> e instanceof CompletionException ? e.getCause() : e).join();
+
+            // batchSign answers the job itself before failing with errors that end the batch
+            if (error != null && !next.responder().responded)
+                next.responder().writeError(ErrorResponseBuilder.buildFromException(
+                        error instanceof Exception exception ? exception : new UnrecognizedException(error)));
+
+            next.responder().write();
+        }
+    }
+
+    private record Pending(LineResponder responder, CompletableFuture<Void> signed) {
+    }
+
+    /**
+     * Keeps the outcome of a document until its line is written by the thread reading the stream.
+     */
+    private class LineResponder extends Responder {
+        private final int index;
+        private boolean responded = false;
+        private SignedDocument signedDocument;
+        private ErrorResponse error;
+
+        LineResponder(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onDocumentSigned(SignedDocument signedDocument) {
+            // the line is written later by the thread reading the stream
+            signedDocument.keep();
+            responded = true;
+            this.signedDocument = signedDocument;
+        }
+
+        @Override
+        public void onDocumentSignFailed(AutogramException error) {
+            writeError(ErrorResponseBuilder.buildFromException(error));
+        }
+
+        private void writeError(ErrorResponse error) {
+            responded = true;
+            this.error = error;
+        }
+
+        void write() {
+            try {
+                if (signedDocument != null)
+                    writeSigned();
+                else
+                    write("{\"index\":" + index + ",\"status\":" + error.getStatusCode() + ",\"body\":" + gson.toJson(error.getBody()) + "}\n");
+                body.flush();
+            } catch (IOException e) {
+                throw new ResponseNetworkErrorException(e);
+            } finally {
+                release();
+            }
+        }
+
+        void release() {
+            if (signedDocument != null)
+                signedDocument.release();
+
+            signedDocument = null;
+        }
+
+        private void writeSigned() throws IOException {
+            var signer = signedDocument.getCertificate().getSubject().getPrincipal().toString();
+            var issuer = signedDocument.getCertificate().getIssuer().getPrincipal().toString();
+
+            try (var document = signedDocument.getDocument().openStream()) {
+                write("{\"index\":" + index + ",\"status\":200,\"body\":");
+                ServerResponder.writeSignResponse(body, document, signer, issuer);
+                write("}\n");
+            }
+        }
+
+        private void write(String text) throws IOException {
+            body.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
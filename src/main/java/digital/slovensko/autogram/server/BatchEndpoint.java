@@ -10,10 +10,14 @@ import digital.slovensko.autogram.server.dto.ErrorResponse;
 import digital.slovensko.autogram.server.errors.MalformedBodyException;
 
 import java.io.IOException;
+import java.util.regex.Pattern;
 
 import static digital.slovensko.autogram.server.errors.MalformedBodyException.Error.JSON_PARSING_FAILED;
 
 public class BatchEndpoint implements HttpHandler {
+    private static final Pattern EVENTS_PATH = Pattern.compile("^/batch/([^/]+)/events/?$");
+    private static final Pattern DOCUMENTS_PATH = Pattern.compile("^/batch/([^/]+)/documents/?$");
+
     private final Autogram autogram;
 
     public BatchEndpoint(Autogram autogram) {
@@ -23,8 +27,17 @@ public class BatchEndpoint implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         var requestMethod = exchange.getRequestMethod();
+        var path = exchange.getRequestURI().getPath();
         try {
-            if (requestMethod.equalsIgnoreCase("POST")) {
+            if (requestMethod.equalsIgnoreCase("GET") && EVENTS_PATH.matcher(path).matches()) {
+                // Progress events
+                var batchId = EVENTS_PATH.matcher(path).replaceFirst("$1");
+                new BatchEventStream(autogram.getBatch(batchId), batchId).stream(exchange);
+            } else if (requestMethod.equalsIgnoreCase("POST") && DOCUMENTS_PATH.matcher(path).matches()) {
+                // Sign stream of documents
+                var batchId = DOCUMENTS_PATH.matcher(path).replaceFirst("$1");
+                new BatchDocumentsStream(autogram, batchId).stream(exchange);
+            } else if (requestMethod.equalsIgnoreCase("POST")) {
                 // Start batch
                 var body = EndpointUtils.loadFromJsonExchange(exchange,
                         BatchStartRequestBody.class);
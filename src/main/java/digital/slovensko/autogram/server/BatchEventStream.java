@@ -0,0 +1,92 @@
+package digital.slovensko.autogram.server;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import digital.slovensko.autogram.core.Batch;
+import digital.slovensko.autogram.server.dto.BatchProgressResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Server-Sent Events stream of batch progress.
+ *
+ * A "progress" event is sent right away and after every finished document, "end" when the batch
+ * is ended and "expired" when it expires. The stream is closed after the last two, a stream opened
+ * on an ended batch gets just the "end" event. Comments are sent in between to keep the connection open.
+ */
+public class BatchEventStream {
+    private static final long KEEPALIVE_SECONDS = 15;
+    private final static Gson gson = new Gson();
+
+    private final Batch batch;
+    private final String batchId;
+    private final BlockingQueue<BatchProgressResponseBody> events = new LinkedBlockingQueue<>();
+    private final Consumer<Batch> listener = this::onBatchChanged;
+
+    public BatchEventStream(Batch batch, String batchId) {
+        this.batch = batch;
+        this.batchId = batchId;
+    }
+
+    public void stream(HttpExchange exchange) {
+        batch.addListener(listener);
+        try (exchange) {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+
+            var body = exchange.getResponseBody();
+            var current = snapshot();
+            writeEvent(body, current.ended() ? "end" : "progress", current);
+            if (current.ended())
+                return;
+
+            while (true) {
+                var event = events.poll(KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                if (event != null) {
+                    writeEvent(body, event.ended() ? "end" : "progress", event);
+                    if (event.ended())
+                        return;
+
+                } else if (batch.isExpired()) {
+                    writeEvent(body, "expired", snapshot());
+                    return;
+
+                } else {
+                    write(body, ": keepalive\n\n");
+                }
+            }
+        } catch (IOException e) {
+            // client has closed the stream
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            batch.removeListener(listener);
+        }
+    }
+
+    private void onBatchChanged(Batch batch) {
+        events.add(snapshot());
+    }
+
+    private BatchProgressResponseBody snapshot() {
+        return new BatchProgressResponseBody(batchId, batch.getTotalNumberOfDocuments(),
+                batch.getProcessedDocumentsCount(), batch.getSuccessfulDocumentsCount(),
+                batch.getFailedDocumentsCount(), batch.isEnded());
+    }
+
+    private static void writeEvent(OutputStream body, String name, BatchProgressResponseBody event) throws IOException {
+        write(body, "event: " + name + "\ndata: " + gson.toJson(event) + "\n\n");
+    }
+
+    private static void write(OutputStream body, String text) throws IOException {
+        body.write(text.getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+}
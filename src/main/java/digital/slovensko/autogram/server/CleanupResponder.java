@@ -0,0 +1,35 @@
+package digital.slovensko.autogram.server;
+
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.core.SignedDocument;
+import digital.slovensko.autogram.core.errors.AutogramException;
+
+/**
+ * Runs the cleanup once the job has been answered, e.g. removes temporary files of the request
+ * or frees its admission ticket, so they do not outlive the request.
+ */
+public class CleanupResponder extends Responder {
+    private final Responder responder;
+    private final Runnable cleanup;
+
+    public CleanupResponder(Responder responder, Runnable cleanup) {
+        this.responder = responder;
+        this.cleanup = cleanup;
+    }
+
+    public void onDocumentSigned(SignedDocument signedDocument) {
+        try {
+            responder.onDocumentSigned(signedDocument);
+        } finally {
+            cleanup.run();
+        }
+    }
+
+    public void onDocumentSignFailed(AutogramException error) {
+        try {
+            responder.onDocumentSignFailed(error);
+        } finally {
+            cleanup.run();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package digital.slovensko.autogram.server;
+
+import com.google.gson.stream.MalformedJsonException;
+import digital.slovensko.autogram.server.dto.SignRequestBody;
+import digital.slovensko.autogram.util.SpillingOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Reader of sign request JSON that takes the document content out of the stream, so that the parser
+ * never holds it as one string.
+ *
+ * The value of the document.content member of each top-level object is unescaped in chunks into a buffer
+ * that spills to a temporary file, the parser sees null in its place. Buffers are handed out by
+ * {@link #takeContent()} in the order of the parsed values. Anything else, e.g. a member name written
+ * with escapes, passes through unchanged and is parsed as usual.
+ */
+class DocumentContentReader extends Reader {
+    private static final char[] PLACEHOLDER = "null".toCharArray();
+    private static final int CHUNK_LENGTH = 8192;
+
+    private final Reader in;
+    private final char[] buffer = new char[CHUNK_LENGTH];
+    private int position = 0;
+    private int limit = 0;
+    private int placeholderPosition = PLACEHOLDER.length;
+
+    private final List<Level> levels = new ArrayList<>();
+    private boolean inString = false;
+    private boolean escaped = false;
+    private StringBuilder name;
+
+    private SpillingOutputStream content;
+    // null marks a value without content
+    private final Queue<SpillingOutputStream> contents = new LinkedList<>();
+
+    DocumentContentReader(Reader in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int n = 0;
+        while (n < len) {
+            if (placeholderPosition < PLACEHOLDER.length) {
+                cbuf[off + n++] = PLACEHOLDER[placeholderPosition++];
+                continue;
+            }
+
+            // do not block while there is something to parse, values of a stream are handled as they come
+            if (position == limit && (n > 0 || !fill()))
+                break;
+
+            var c = buffer[position++];
+            if (inString) {
+                stringChar(c);
+            } else if (c == '"' && isContentValue()) {
+                readContent();
+                placeholderPosition = 0;
+                continue;
+            } else {
+                structuralChar(c);
+            }
+
+            cbuf[off + n++] = c;
+        }
+
+        return n == 0 && len > 0 ? -1 : n;
+    }
+
+    /**
+     * Content of the next parsed value or null if it has none. The caller is responsible for discarding it.
+     */
+    SpillingOutputStream takeContent() {
+        return contents.poll();
+    }
+
+    /**
+     * Delete contents that were not taken, e.g. when parsing has failed.
+     */
+    void discard() {
+        if (content != null)
+            content.discard();
+        content = null;
+
+        for (var taken : contents)
+            if (taken != null)
+                taken.discard();
+        contents.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean fill() throws IOException {
+        var read = in.read(buffer, 0, buffer.length);
+        if (read <= 0)
+            return false;
+
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private void stringChar(char c) {
+        if (escaped) {
+            escaped = false;
+        } else if (c == '\\') {
+            escaped = true;
+        } else if (c == '"') {
+            inString = false;
+            if (name != null)
+                top().name = name.toString();
+            name = null;
+            return;
+        }
+
+        if (name != null)
+            name.append(c);
+    }
+
+    private void structuralChar(char c) {
+        var top = levels.isEmpty() ? null : top();
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                if (top != null && top.object && top.expectsName)
+                    name = new StringBuilder();
+            }
+            case '{' -> levels.add(new Level(true));
+            case '[' -> levels.add(new Level(false));
+            case '}', ']' -> {
+                if (top == null)
+                    return;
+
+                levels.removeLast();
+                if (levels.isEmpty()) {
+                    contents.add(content);
+                    content = null;
+                }
+            }
+            case ':' -> {
+                if (top != null)
+                    top.expectsName = false;
+            }
+            case ',' -> {
+                if (top != null && top.object)
+                    top.expectsName = true;
+            }
+            default -> {
+            }
+        }
+    }
+
+    private boolean isContentValue() {
+        if (levels.size() != 2)
+            return false;
+
+        var request = levels.get(0);
+        var document = levels.get(1);
+        return request.object && "document".equals(request.name)
+                && document.object && !document.expectsName && "content".equals(document.name);
+    }
+
+    private void readContent() throws IOException {
+        // a repeated member replaces the previous one, like in the parser
+        if (content != null)
+            content.discard();
+
+        content = SignRequestBody.createContentBuffer();
+        try (var writer = new OutputStreamWriter(content, StandardCharsets.UTF_8)) {
+            var chunk = new char[CHUNK_LENGTH];
+            var length = 0;
+            for (var c = next(); c != '"'; c = next()) {
+                if (c < 0x20)
+                    throw new MalformedJsonException("Unescaped control character in document content");
+
+                chunk[length++] = c == '\\' ? unescape() : c;
+                if (length == chunk.length) {
+                    writer.write(chunk, 0, length);
+                    length = 0;
+                }
+            }
+            writer.write(chunk, 0, length);
+
+        } catch (IOException | RuntimeException e) {
+            content.discard();
+            content = null;
+            throw e;
+        }
+    }
+
+    private char unescape() throws IOException {
+        var c = next();
+        return switch (c) {
+            case '"', '\\', '/' -> c;
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'u' -> {
+                var value = 0;
+                for (int i = 0; i < 4; i++) {
+                    var digit = Character.digit(next(), 16);
+                    if (digit == -1)
+                        throw new MalformedJsonException("Invalid escape sequence in document content");
+
+                    value = value * 16 + digit;
+                }
+                yield (char) value;
+            }
+            default -> throw new MalformedJsonException("Invalid escape sequence in document content");
+        };
+    }
+
+    private char next() throws IOException {
+        if (position == limit && !fill())
+            throw new MalformedJsonException("Unterminated document content");
+
+        return buffer[position++];
+    }
+
+    private Level top() {
+        return levels.getLast();
+    }
+
+    private static class Level {
+        final boolean object;
+        boolean expectsName;
+        String name;
+
+        Level(boolean object) {
+            this.object = object;
+            this.expectsName = object;
+        }
+    }
+}
@@ -5,22 +5,16 @@ import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
 
-import static java.util.Objects.requireNonNull;
-
 public class DocumentationEndpoint implements HttpHandler {
+    // documentation changes with the application version, clients have to revalidate it
+    private static final String CACHE_CONTROL = "no-cache";
+
+    private final StaticResource html = StaticResource.load(getClass(), "index.html", "text/html", CACHE_CONTROL);
+    private final StaticResource yaml = StaticResource.load(getClass(), "server.yml", "text/yaml", CACHE_CONTROL);
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         var isYaml = exchange.getRequestURI().getPath().endsWith(".yml");
-        var mimeType = isYaml ? "text/yaml" : "text/html";
-        var filename = isYaml ? "server.yml" : "index.html";
-        var stream = getClass().getResourceAsStream(filename);
-
-        try (exchange) {
-            exchange.getResponseHeaders().set("Content-Type", mimeType);
-            exchange.sendResponseHeaders(200, 0);
-            requireNonNull(stream).transferTo(exchange.getResponseBody());
-        }
-
-        stream.close();
+        (isYaml ? yaml : html).respond(exchange);
     }
 }
@@ -1,19 +1,39 @@
 package digital.slovensko.autogram.server;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonToken;
 import com.sun.net.httpserver.HttpExchange;
+import digital.slovensko.autogram.core.Configuration;
 import digital.slovensko.autogram.core.errors.ResponseNetworkErrorException;
 import digital.slovensko.autogram.server.dto.ErrorResponse;
+import digital.slovensko.autogram.server.dto.SignRequestBody;
 import digital.slovensko.autogram.server.errors.EmptyBodyException;
+import digital.slovensko.autogram.server.errors.PayloadTooLargeException;
+import digital.slovensko.autogram.util.Trace;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class EndpointUtils {
     private final static Gson gson = new Gson();
+    private final static long MAX_REQUEST_BODY_SIZE = Long.parseLong(Configuration.getProperty("server.request.maxBodySize"));
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
 
     public static void respondWithError(ErrorResponse error, HttpExchange exchange) {
         try {
+            addServerTiming(exchange);
             exchange.getResponseHeaders().add("Content-Type", "application/json");
             exchange.sendResponseHeaders(error.getStatusCode(), 0);
             if (error.getStatusCode() != 204)
@@ -24,10 +44,23 @@ public class EndpointUtils {
         }
     }
 
+    /**
+     * Add durations of the stages recorded in the trace current on this thread, if there is one.
+     */
+    public static void addServerTiming(HttpExchange exchange) {
+        var trace = Trace.current();
+        if (trace != null && !trace.toServerTiming().isEmpty())
+            exchange.getResponseHeaders().set(SERVER_TIMING_HEADER, trace.toServerTiming());
+    }
+
     public static void respondWith(Object response, HttpExchange exchange) {
+        respondWith(response, 200, exchange);
+    }
+
+    public static void respondWith(Object response, int statusCode, HttpExchange exchange) {
         try {
             exchange.getResponseHeaders().add("Content-Type", "application/json");
-            exchange.sendResponseHeaders(200, 0);
+            exchange.sendResponseHeaders(statusCode, 0);
             exchange.getResponseBody().write(gson.toJson(response).getBytes());
             exchange.getResponseBody().close();
         } catch (IOException e) {
@@ -35,16 +68,84 @@ public class EndpointUtils {
         }
     }
 
+    /**
+     * Parse the request body directly from the exchange stream, so the raw body is never held in memory
+     * next to the parsed object. Bodies larger than server.request.maxBodySize are rejected.
+     */
     public static <T> T loadFromJsonExchange(HttpExchange exchange, Class<T> classOfT) throws IOException {
-        var content = new String(exchange.getRequestBody().readAllBytes());
-        if (content == null || content.isEmpty())
-            throw new EmptyBodyException();
-        var ret = gson.fromJson(content, classOfT);
+        return loadFromJson(openNonEmptyRequestBody(exchange), classOfT);
+    }
+
+    /**
+     * Parse a sign request like {@link #loadFromJsonExchange(HttpExchange, Class)}, but read the document
+     * content in chunks into a buffer that spills to a temporary file, so it is never held as one string.
+     */
+    public static SignRequestBody loadSignRequestFromExchange(HttpExchange exchange) throws IOException {
+        var contentReader = new DocumentContentReader(openNonEmptyRequestBody(exchange));
+        try {
+            var body = loadFromJson(contentReader, SignRequestBody.class);
+            body.attachEncodedContent(contentReader.takeContent());
+            return body;
+        } finally {
+            contentReader.discard();
+        }
+    }
+
+    public static <T> T loadFromJson(Reader json, Class<T> classOfT) throws IOException {
+        var reader = gson.newJsonReader(json);
+        T ret = gson.fromJson(reader, classOfT);
         if (ret == null)
             throw new IOException("Failed to parse JSON body");
+        if (reader.peek() != JsonToken.END_DOCUMENT)
+            throw new JsonSyntaxException("JSON document was not fully consumed.");
+
         return ret;
     }
 
+    /**
+     * Read a stream of sign requests, e.g. NDJSON, and pass them to the consumer one by one. Every request
+     * is limited to server.request.maxBodySize, the stream as a whole is not. Document contents are read
+     * like in {@link #loadSignRequestFromExchange(HttpExchange)}.
+     */
+    public static void forEachSignRequest(HttpExchange exchange, Consumer<SignRequestBody> consumer) throws IOException {
+        var body = new LimitedInputStream(exchange.getRequestBody(), MAX_REQUEST_BODY_SIZE);
+        var contentReader = new DocumentContentReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        var reader = gson.newJsonReader(contentReader);
+        reader.setStrictness(Strictness.LENIENT);
+
+        try {
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                body.resetCount();
+                SignRequestBody value = gson.fromJson(reader, SignRequestBody.class);
+                if (value == null)
+                    throw new IOException("Failed to parse JSON value");
+
+                value.attachEncodedContent(contentReader.takeContent());
+                consumer.accept(value);
+            }
+        } finally {
+            contentReader.discard();
+        }
+    }
+
+    /**
+     * Request body that throws {@link PayloadTooLargeException} once more than server.request.maxBodySize
+     * bytes are read.
+     */
+    public static InputStream openRequestBody(HttpExchange exchange) {
+        return new LimitedInputStream(exchange.getRequestBody(), MAX_REQUEST_BODY_SIZE);
+    }
+
+    private static Reader openNonEmptyRequestBody(HttpExchange exchange) throws IOException {
+        var stream = new PushbackInputStream(new BufferedInputStream(openRequestBody(exchange)));
+        var first = stream.read();
+        if (first == -1)
+            throw new EmptyBodyException();
+        stream.unread(first);
+
+        return new InputStreamReader(stream, StandardCharsets.UTF_8);
+    }
+
     public static List<String> parseQueryParam(String query, String drivers) {
         if (query == null || query.isEmpty())
             return List.of();
@@ -58,4 +159,42 @@ public class EndpointUtils {
         }
         return List.of();
     }
+
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count = 0;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = super.read();
+            if (b != -1)
+                count(1);
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var n = super.read(b, off, len);
+            if (n > 0)
+                count(n);
+
+            return n;
+        }
+
+        void resetCount() {
+            count = 0;
+        }
+
+        private void count(int n) {
+            count += n;
+            if (count > limit)
+                throw new PayloadTooLargeException(limit);
+        }
+    }
 }
@@ -31,6 +31,9 @@ public class ErrorResponseBuilder {
             case SigningCanceledByUserException ex -> new ErrorResponse(204, instance.buildResponseWithTranslations("USER_CANCELLED", ex));
             case PasswordNotProvidedException ex -> new ErrorResponse(204, instance.buildResponseWithTranslations("PASSWORD_NOT_PROVIDED", ex));
             case ServiceUnavailableException ex -> new ErrorResponse(503, instance.buildResponseWithTranslations("SERVICE_UNAVAILABLE", ex));
+            case ServerBusyException ex -> new ErrorResponse(503, instance.buildResponseWithTranslations("SERVER_BUSY", ex));
+            case ValidatorNotReadyException ex -> new ErrorResponse(503, instance.buildResponseWithTranslations("VALIDATOR_NOT_READY", ex));
+            case ValidationTimeoutException ex -> new ErrorResponse(504, instance.buildResponseWithTranslations("VALIDATION_TIMEOUT", ex));
             case UnrecognizedException ex -> new ErrorResponse(502, instance.buildResponseWithTranslations("UNRECOGNIZED_DSS_ERROR", ex));
             case InitializationFailedException ex -> new ErrorResponse(500, instance.buildResponseWithTranslations("INITIALIZATION_FAILED", ex));
             case PINIncorrectException ex -> new ErrorResponse(500, instance.buildResponseWithTranslations("PIN_INCORRECT", ex));
@@ -41,7 +44,11 @@ public class ErrorResponseBuilder {
                  SigningParametersException _,
                  EFormException _,
                  TransformationException _,
-                 TransformationParsingErrorException _ ->
+                 TransformationParsingErrorException _,
+                 SourceDoesNotExistException _,
+                 SourceAndTargetTypeMismatchException _,
+                 TargetAlreadyExistsException _,
+                 TargetDirectoryDoesNotExistException _ ->
                     new ErrorResponse(422, instance.buildResponseWithTranslations("UNPROCESSABLE_INPUT", (AutogramException) e));
             case MultipleOriginalDocumentsFoundException ex ->
                     new ErrorResponse(422, instance.buildResponseWithTranslations("MULTIPLE_ORIGINAL_DOCUMENTS", ex));
@@ -50,6 +57,11 @@ public class ErrorResponseBuilder {
             case UnknownEformException ex -> new ErrorResponse(400, instance.buildResponseWithTranslations("UNKNOWN_EFORM", ex));
             case BatchCanceledException ex -> new ErrorResponse(502, instance.buildResponseWithTranslations("BATCH_CANCELED", ex));
             case EmptyBodyException ex -> new ErrorResponse(400, instance.buildResponseWithTranslations("EMPTY_BODY", ex));
+            case PayloadTooLargeException ex -> new ErrorResponse(413, instance.buildResponseWithTranslations("PAYLOAD_TOO_LARGE", ex));
+            case JobNotFoundException ex -> new ErrorResponse(404, instance.buildResponseWithTranslations("JOB_NOT_FOUND", ex));
+            case TooManyRequestsException ex -> new ErrorResponse(429, instance.buildResponseWithTranslations("TOO_MANY_REQUESTS", ex));
+            case LocalFileAccessException ex -> new ErrorResponse(403, instance.buildResponseWithTranslations("LOCAL_FILE_ACCESS_DENIED", ex));
+            case IdempotencyKeyReusedException ex -> new ErrorResponse(422, instance.buildResponseWithTranslations("IDEMPOTENCY_KEY_REUSED", ex));
             case BatchEndedException ex -> new ErrorResponse(400, instance.buildResponseWithTranslations("BATCH_ENDED", ex));
             case BatchExpiredException ex -> new ErrorResponse(400, instance.buildResponseWithTranslations("BATCH_EXPIRED", ex));
             case BatchNotStartedException ex -> new ErrorResponse(400, instance.buildResponseWithTranslations("BATCH_NOT_STARTED", ex));
@@ -0,0 +1,105 @@
+package digital.slovensko.autogram.server;
+
+import static digital.slovensko.autogram.core.Configuration.getProperty;
+
+import java.io.FileInputStream;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.concurrent.Executor;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+
+import digital.slovensko.autogram.core.errors.PortIsUsedException;
+import digital.slovensko.autogram.core.errors.ServerNotCreatedException;
+
+/**
+ * TCP transport on top of the JDK HTTP server, optionally over TLS.
+ */
+public class HttpServerTransport implements ServerTransport {
+    private final HttpServer server;
+
+    public HttpServerTransport(String hostname, int port, boolean isHttps, Executor executor) {
+        this.server = buildServer(hostname, port, isHttps);
+        this.server.setExecutor(executor);
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler, List<Filter> filters) {
+        server.createContext(path, handler).getFilters().addAll(filters);
+    }
+
+    @Override
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void stop() {
+        server.stop(1);
+    }
+
+    private static HttpServer buildServer(String hostname, int port, boolean isHttps) {
+        try {
+            var backlog = Integer.parseInt(getProperty("server.backlog"));
+
+            if (!isHttps)
+                return HttpServer.create(new InetSocketAddress(hostname, port), backlog);
+
+            var server = HttpsServer.create(new InetSocketAddress(hostname, port), backlog);
+            var sslContext = buildSslContext();
+
+            // Parameters are the same for every connection, compute them once instead of per handshake
+            var sslParameters = SSLContext.getDefault().getDefaultSSLParameters();
+            sslParameters.setNeedClientAuth(false);
+
+            server.setHttpsConfigurator(new HttpsConfigurator(sslContext) {
+                public void configure(HttpsParameters params) {
+                    params.setSSLParameters(sslParameters);
+                }
+            });
+
+            return server;
+
+        } catch (BindException e) {
+            throw new PortIsUsedException();
+
+        } catch (Exception e) {
+            throw new ServerNotCreatedException(e);
+        }
+    }
+
+    static SSLContext buildSslContext() throws Exception {
+        var p12file = Paths.get(System.getProperty("user.home"), getProperty("file.ssl.pkcs12.cert"))
+                .toFile();
+        char[] password = "".toCharArray();
+        var ks = KeyStore.getInstance("PKCS12");
+        try (var stream = new FileInputStream(p12file)) {
+            ks.load(stream, password);
+        }
+
+        var kmf = KeyManagerFactory.getInstance("SunX509");
+        kmf.init(ks, password);
+        var tmf = TrustManagerFactory.getInstance("SunX509");
+        tmf.init(ks);
+
+        var sslContext = SSLContext.getInstance("TLSv1.2");
+        sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+
+        // Browsers reconnect often, resumed sessions skip the full handshake
+        var sessionContext = sslContext.getServerSessionContext();
+        sessionContext.setSessionCacheSize(Integer.parseInt(getProperty("server.tls.sessionCacheSize")));
+        sessionContext.setSessionTimeout(Integer.parseInt(getProperty("server.tls.sessionTimeoutSeconds")));
+
+        return sslContext;
+    }
+}
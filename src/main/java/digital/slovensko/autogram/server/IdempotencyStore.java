@@ -0,0 +1,95 @@
+package digital.slovensko.autogram.server;
+
+import digital.slovensko.autogram.server.errors.IdempotencyKeyReusedException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+
+/**
+ * Outcomes of signing requests sent with an Idempotency-Key header.
+ *
+ * A repeated request with the same key and document joins the job of the first one instead of
+ * opening another signing dialog. Finished outcomes are kept for the time to live, failed ones are
+ * forgotten right away, so the request can be retried. When the store is full, the oldest finished
+ * outcomes are evicted, requests over the limit are signed without being remembered.
+ *
+ * Keys are scoped to the origin of the request, a page cannot join or probe jobs of another one
+ * by guessing its keys.
+ */
+public class IdempotencyStore {
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>();
+    private final int maxEntries;
+    private final Duration ttl;
+
+    public IdempotencyStore(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Register the job for the key. Returns the job registered before for the same key and document,
+     * or null if the given job has been registered or the store is full.
+     */
+    public synchronized ServerJob register(Key key, String documentDigest, ServerJob job) throws IdempotencyKeyReusedException {
+        evict();
+
+        var entry = entries.get(key);
+        if (entry != null) {
+            if (!entry.documentDigest.equals(documentDigest))
+                throw new IdempotencyKeyReusedException(key.value());
+
+            return entry.job;
+        }
+
+        if (entries.size() < maxEntries)
+            entries.put(key, new Entry(documentDigest, job));
+
+        return null;
+    }
+
+    public synchronized void remove(Key key, ServerJob job) {
+        var entry = entries.get(key);
+        if (entry != null && entry.job == job)
+            entries.remove(key);
+    }
+
+    public synchronized boolean contains(Key key, ServerJob job) {
+        var entry = entries.get(key);
+        return entry != null && entry.job == job;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        var now = Instant.now();
+        entries.values().removeIf(entry -> {
+            if (!entry.job.isExpired(now, ttl))
+                return false;
+
+            entry.job.discard();
+            return true;
+        });
+
+        // entries are in insertion order, the first finished ones are the oldest
+        var iterator = entries.values().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            var job = iterator.next().job;
+            if (job.isFinished()) {
+                job.discard();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Idempotency-Key header value together with the Origin header of the request, which is null for non-browser clients.
+     */
+    public record Key(String origin, String value) {
+    }
+
+    private record Entry(String documentDigest, ServerJob job) {
+    }
+}
@@ -0,0 +1,38 @@
+package digital.slovensko.autogram.server;
+
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.core.SignedDocument;
+import digital.slovensko.autogram.core.errors.AutogramException;
+
+/**
+ * Keeps the outcome of a job submitted with an Idempotency-Key before answering, so repeated requests
+ * get it even if the client of the first one has already gone. Failed jobs are forgotten, a repeated
+ * request signs the document again.
+ */
+public class IdempotentResponder extends Responder {
+    private final Responder responder;
+    private final IdempotencyStore store;
+    private final IdempotencyStore.Key key;
+    private final ServerJob outcome;
+
+    public IdempotentResponder(Responder responder, IdempotencyStore store, IdempotencyStore.Key key, ServerJob outcome) {
+        this.responder = responder;
+        this.store = store;
+        this.key = key;
+        this.outcome = outcome;
+    }
+
+    public void onDocumentSigned(SignedDocument signedDocument) {
+        // the outcome keeps the document until it is evicted, which never happens if the store was full
+        if (store.contains(key, outcome))
+            outcome.onDocumentSigned(signedDocument);
+
+        responder.onDocumentSigned(signedDocument);
+    }
+
+    public void onDocumentSignFailed(AutogramException error) {
+        store.remove(key, outcome);
+        outcome.onDocumentSignFailed(error);
+        responder.onDocumentSignFailed(error);
+    }
+}
@@ -15,9 +15,11 @@ import java.io.IOException;
 
 public class InfoEndpoint implements HttpHandler {
     private final Autogram autogram;
+    private final AdmissionControl admissionControl;
 
-    public InfoEndpoint(Autogram autogram) {
+    public InfoEndpoint(Autogram autogram, AdmissionControl admissionControl) {
         this.autogram = autogram;
+        this.admissionControl = admissionControl;
     }
 
     @Override
@@ -27,7 +29,8 @@ public class InfoEndpoint implements HttpHandler {
                 getStatus(),
                 autogram.getAvailableDrivers().stream()
                         .map(TokenDriver::getShortname)
-                        .toList()
+                        .toList(),
+                admissionControl.getPendingJobsCount()
         );
         var gson = new Gson();
 
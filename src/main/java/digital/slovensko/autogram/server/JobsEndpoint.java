@@ -0,0 +1,104 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import digital.slovensko.autogram.core.Autogram;
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.core.errors.AutogramException;
+import digital.slovensko.autogram.server.dto.JobResponseBody;
+import digital.slovensko.autogram.server.errors.InvalidUrlParamException;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static digital.slovensko.autogram.server.errors.InvalidUrlParamException.Error.INVALID_WAIT;
+
+/**
+ * Asynchronous variant of /sign.
+ *
+ * POST /jobs takes the same body as /sign and is answered with 202 and the job id as soon as
+ * the job is handed over for signing. GET /jobs/{id} is answered the same way as /sign once the
+ * job is finished. With ?wait=seconds it waits for the job up to server.jobs.maxWaitSeconds,
+ * unfinished jobs are answered with 202.
+ */
+public class JobsEndpoint implements HttpHandler {
+    private final ServerJobs jobs;
+    private final Duration maxWait;
+    private final SignEndpoint submitEndpoint;
+
+    public JobsEndpoint(Autogram autogram, ServerJobs jobs, Duration maxWait) {
+        this.jobs = jobs;
+        this.maxWait = maxWait;
+        this.submitEndpoint = new SubmitEndpoint(autogram, jobs);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        var jobId = exchange.getRequestURI().getPath().replaceFirst("^/jobs/?", "");
+        var requestMethod = exchange.getRequestMethod();
+
+        if (requestMethod.equalsIgnoreCase("POST") && jobId.isEmpty())
+            submitEndpoint.handle(exchange);
+        else if (requestMethod.equalsIgnoreCase("GET") && !jobId.isEmpty())
+            poll(exchange, jobId);
+        else
+            try (exchange) {
+                exchange.sendResponseHeaders(405, -1);
+            }
+    }
+
+    private void poll(HttpExchange exchange, String jobId) {
+        ServerJob job;
+        try {
+            job = jobs.get(jobId);
+            if (!job.await(getWait(exchange))) {
+                EndpointUtils.respondWith(new JobResponseBody(job.getId(), "PENDING"), 202, exchange);
+                return;
+            }
+        } catch (AutogramException e) {
+            EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(e), exchange);
+            return;
+        }
+
+        job.respondTo(new ServerResponder(exchange));
+    }
+
+    private Duration getWait(HttpExchange exchange) {
+        var wait = EndpointUtils.parseQueryParam(exchange.getRequestURI().getQuery(), "wait");
+        if (wait.isEmpty())
+            return Duration.ZERO;
+
+        try {
+            var seconds = Long.parseLong(wait.getFirst());
+            if (seconds < 0)
+                throw new InvalidUrlParamException(INVALID_WAIT);
+
+            return Duration.ofSeconds(Math.min(seconds, maxWait.toSeconds()));
+        } catch (NumberFormatException e) {
+            throw new InvalidUrlParamException(INVALID_WAIT);
+        }
+    }
+
+    private static class SubmitEndpoint extends SignEndpoint {
+        private final ServerJobs jobs;
+
+        SubmitEndpoint(Autogram autogram, ServerJobs jobs) {
+            super(autogram);
+            this.jobs = jobs;
+        }
+
+        @Override
+        protected Responder createResponder(HttpExchange exchange) {
+            return new ServerJob();
+        }
+
+        @Override
+        protected void onSubmitted(HttpExchange exchange, Responder responder) {
+            var job = (ServerJob) responder;
+            jobs.add(job);
+
+            exchange.getResponseHeaders().add("Location", "/jobs/" + job.getId());
+            EndpointUtils.respondWith(new JobResponseBody(job.getId(), job.isFinished() ? "FINISHED" : "PENDING"), 202, exchange);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.core.SignedDocument;
+import digital.slovensko.autogram.core.TargetPath;
+import digital.slovensko.autogram.core.errors.AutogramException;
+import digital.slovensko.autogram.server.dto.SignedFileResponse;
+import digital.slovensko.autogram.util.Metrics;
+import eu.europa.esig.dss.enumerations.MimeTypeEnum;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Saves the signed document next to the source, or to the requested target, and answers with its path
+ * instead of its content.
+ */
+public class LocalFileResponder extends Responder {
+    private final HttpExchange exchange;
+    private final TargetPath targetPath;
+    private final Path source;
+
+    public LocalFileResponder(HttpExchange exchange, TargetPath targetPath, Path source) {
+        this.exchange = exchange;
+        this.targetPath = targetPath;
+        this.source = source;
+    }
+
+    @Override
+    public void onDocumentSigned(SignedDocument signedDocument) {
+        var signer = signedDocument.getCertificate().getSubject().getPrincipal().toString();
+        var issuer = signedDocument.getCertificate().getIssuer().getPrincipal().toString();
+
+        Path target;
+        try (var _ = Metrics.time("file_write")) {
+            target = targetPath.getSaveFilePath(source, MimeTypeEnum.PDF.equals(signedDocument.getDocument().getMimeType()));
+            signedDocument.getDocument().save(target.toString());
+        } catch (AutogramException e) {
+            onDocumentSignFailed(e);
+            return;
+        } catch (IOException e) {
+            onDocumentSignFailed(new AutogramException("SIGNING_FAILED", e));
+            return;
+        }
+
+        EndpointUtils.addServerTiming(exchange);
+        EndpointUtils.respondWith(new SignedFileResponse(target.toString(), signer, issuer), exchange);
+    }
+
+    @Override
+    public void onDocumentSignFailed(AutogramException error) {
+        EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(error), exchange);
+    }
+}
@@ -0,0 +1,109 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import digital.slovensko.autogram.core.TargetPath;
+import digital.slovensko.autogram.core.errors.SourceDoesNotExistException;
+import digital.slovensko.autogram.core.errors.TargetDirectoryDoesNotExistException;
+import digital.slovensko.autogram.server.errors.LocalFileAccessException;
+import digital.slovensko.autogram.util.Logging;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static digital.slovensko.autogram.server.errors.LocalFileAccessException.Error.DISABLED;
+import static digital.slovensko.autogram.server.errors.LocalFileAccessException.Error.NOT_ALLOWED;
+import static digital.slovensko.autogram.server.errors.LocalFileAccessException.Error.NOT_LOCAL;
+
+/**
+ * Directories whose files local integrations may sign by path instead of sending their content.
+ *
+ * Only requests from this machine that do not come from a web page are served. Otherwise any site open
+ * in the browser could have files of the user signed and find out what is in them.
+ */
+public class LocalFiles {
+    private final List<Path> directories = new ArrayList<>();
+
+    public LocalFiles(List<Path> directories) {
+        for (var directory : directories) {
+            try {
+                this.directories.add(directory.toRealPath());
+            } catch (IOException e) {
+                Logging.log("Signing directory " + directory + " is not accessible: " + e.getMessage());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return !directories.isEmpty();
+    }
+
+    public void checkRequest(HttpExchange exchange) throws LocalFileAccessException {
+        if (!isEnabled())
+            throw new LocalFileAccessException(DISABLED);
+
+        var address = exchange.getRemoteAddress().getAddress();
+        if (!address.isLoopbackAddress() || exchange.getRequestHeaders().containsKey("Origin"))
+            throw new LocalFileAccessException(NOT_LOCAL);
+    }
+
+    /**
+     * Resolve the document to be signed, following links, so it cannot point out of the allowed directories.
+     */
+    public Path resolveSource(String source) {
+        Path path;
+        try {
+            path = toAbsolutePath(source).toRealPath();
+        } catch (IOException e) {
+            throw new SourceDoesNotExistException(source);
+        }
+
+        if (!Files.isRegularFile(path))
+            throw new SourceDoesNotExistException(source);
+
+        checkAllowed(path, source);
+        return path;
+    }
+
+    /**
+     * Where to save the signed document, next to the source by default. An existing target is never overwritten.
+     */
+    public TargetPath resolveTarget(String target, Path source) {
+        if (target != null) {
+            var directory = toAbsolutePath(target).getParent();
+            try {
+                checkAllowed(directory.toRealPath(), target);
+            } catch (IOException e) {
+                throw new TargetDirectoryDoesNotExistException();
+            }
+        }
+
+        // the extension follows the MIME type of the signed document, see LocalFileResponder
+        return new TargetPath(target, source, false, false, FileSystems.getDefault(), false);
+    }
+
+    private void checkAllowed(Path path, String requested) {
+        for (var directory : directories)
+            if (path.startsWith(directory))
+                return;
+
+        throw new LocalFileAccessException(NOT_ALLOWED, requested);
+    }
+
+    private static Path toAbsolutePath(String path) {
+        try {
+            var result = Path.of(path);
+            if (result.isAbsolute() && result.getParent() != null)
+                return result.normalize();
+
+        } catch (InvalidPathException e) {
+            // refused below
+        }
+
+        throw new LocalFileAccessException(NOT_ALLOWED, path);
+    }
+}
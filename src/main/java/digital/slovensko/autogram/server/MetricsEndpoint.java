@@ -0,0 +1,21 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import digital.slovensko.autogram.util.Metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class MetricsEndpoint implements HttpHandler {
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        var metrics = Metrics.export().getBytes(StandardCharsets.UTF_8);
+
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, metrics.length);
+            exchange.getResponseBody().write(metrics);
+        }
+    }
+}
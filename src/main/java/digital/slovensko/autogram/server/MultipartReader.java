@@ -0,0 +1,222 @@
+package digital.slovensko.autogram.server;
+
+import digital.slovensko.autogram.server.errors.MalformedBodyException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import static digital.slovensko.autogram.server.errors.MalformedBodyException.Error.MULTIPART_PARSING_FAILED;
+
+/**
+ * Minimal streaming reader of multipart/form-data bodies (RFC 7578). Parts are read one after another,
+ * their content is copied to the given output stream without buffering the whole part.
+ */
+public class MultipartReader {
+    private static final int MAX_HEADERS_LENGTH = 16 * 1024;
+    private static final Pattern BOUNDARY = Pattern.compile("boundary=(\"([^\"]+)\"|[^;\\s]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NAME = Pattern.compile("[; ]name=\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FILENAME = Pattern.compile("[; ]filename=\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[8192];
+    private int position = 0;
+    private int length = 0;
+
+    private boolean finished = false;
+    private boolean partPending = false;
+    private String name;
+    private String filename;
+    private String contentType;
+
+    public MultipartReader(InputStream in, String boundary) throws IOException {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+
+        // the first delimiter does not have to be preceded by CRLF
+        var first = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        for (byte b : first)
+            if (read() != b)
+                throw new MalformedBodyException(MULTIPART_PARSING_FAILED);
+
+        partPending = true;
+        finishDelimiter();
+    }
+
+    public static boolean isMultipart(String contentType) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("multipart/form-data");
+    }
+
+    public static String getBoundary(String contentType) {
+        var matcher = BOUNDARY.matcher(contentType);
+        if (!matcher.find())
+            throw new MalformedBodyException(MULTIPART_PARSING_FAILED);
+
+        return matcher.group(2) != null ? matcher.group(2) : matcher.group(1);
+    }
+
+    /**
+     * Move to the next part, the rest of the current part is skipped. Returns false after the last part.
+     */
+    public boolean next() throws IOException {
+        if (partPending)
+            copyPart(null);
+
+        if (finished)
+            return false;
+
+        readHeaders();
+        partPending = true;
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Copy the content of the current part to the output stream, or skip it when the stream is null.
+     */
+    public void copyPart(OutputStream out) throws IOException {
+        if (!partPending)
+            throw new IllegalStateException("No part to read");
+
+        var chunk = new byte[8192];
+        var chunkLength = 0;
+        var matched = 0;
+        while (matched < delimiter.length) {
+            var b = read();
+            if (b == -1)
+                throw new MalformedBodyException(MULTIPART_PARSING_FAILED);
+
+            if (b == delimiter[matched]) {
+                matched++;
+                continue;
+            }
+
+            // CR starts the delimiter only, so the partial match can be flushed as content
+            if (matched > 0) {
+                chunkLength = write(out, chunk, chunkLength, delimiter, matched);
+                matched = b == delimiter[0] ? 1 : 0;
+                if (matched == 1)
+                    continue;
+            }
+
+            if (chunkLength == chunk.length) {
+                if (out != null)
+                    out.write(chunk, 0, chunkLength);
+                chunkLength = 0;
+            }
+            chunk[chunkLength++] = (byte) b;
+        }
+
+        if (out != null && chunkLength > 0)
+            out.write(chunk, 0, chunkLength);
+
+        finishDelimiter();
+    }
+
+    private int write(OutputStream out, byte[] chunk, int chunkLength, byte[] bytes, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (chunkLength == chunk.length) {
+                if (out != null)
+                    out.write(chunk, 0, chunkLength);
+                chunkLength = 0;
+            }
+            chunk[chunkLength++] = bytes[i];
+        }
+
+        return chunkLength;
+    }
+
+    private void finishDelimiter() throws IOException {
+        partPending = false;
+        var first = read();
+        var second = read();
+        if (first == '-' && second == '-') {
+            finished = true;
+            return;
+        }
+
+        // transport padding is allowed before CRLF
+        while (first == ' ' || first == '\t') {
+            first = second;
+            second = read();
+        }
+
+        if (first != '\r' || second != '\n')
+            throw new MalformedBodyException(MULTIPART_PARSING_FAILED);
+    }
+
+    private void readHeaders() throws IOException {
+        name = null;
+        filename = null;
+        contentType = null;
+
+        var line = new ByteArrayOutputStream();
+        var total = 0;
+        while (true) {
+            var b = read();
+            if (b == -1 || ++total > MAX_HEADERS_LENGTH)
+                throw new MalformedBodyException(MULTIPART_PARSING_FAILED);
+
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+
+            var header = line.toString(StandardCharsets.UTF_8).stripTrailing();
+            line.reset();
+            if (header.isEmpty())
+                return;
+
+            parseHeader(header);
+        }
+    }
+
+    private void parseHeader(String header) {
+        var separator = header.indexOf(':');
+        if (separator == -1)
+            throw new MalformedBodyException(MULTIPART_PARSING_FAILED);
+
+        var key = header.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+        var value = header.substring(separator + 1).trim();
+        if (key.equals("content-type")) {
+            contentType = value;
+        } else if (key.equals("content-disposition")) {
+            var nameMatcher = NAME.matcher(value);
+            if (nameMatcher.find())
+                name = nameMatcher.group(1);
+
+            var filenameMatcher = FILENAME.matcher(value);
+            if (filenameMatcher.find())
+                filename = filenameMatcher.group(1);
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == length) {
+            length = in.read(buffer);
+            position = 0;
+            if (length <= 0) {
+                length = 0;
+                return -1;
+            }
+        }
+
+        return buffer[position++] & 0xff;
+    }
+}
@@ -0,0 +1,51 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.core.SignedDocument;
+import digital.slovensko.autogram.core.errors.AutogramException;
+import digital.slovensko.autogram.core.errors.ResponseNetworkErrorException;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Respond with the signed document as raw bytes. Signer and issuer are URL encoded in response headers.
+ */
+public class RawServerResponder extends Responder {
+    public static final String SIGNED_BY_HEADER = "X-Autogram-Signed-By";
+    public static final String ISSUED_BY_HEADER = "X-Autogram-Issued-By";
+
+    private final HttpExchange exchange;
+
+    public RawServerResponder(HttpExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    @Override
+    public void onDocumentSigned(SignedDocument signedDocument) throws AutogramException {
+        var signer = signedDocument.getCertificate().getSubject().getPrincipal().toString();
+        var issuer = signedDocument.getCertificate().getIssuer().getPrincipal().toString();
+        var document = signedDocument.getDocument();
+        var mimeType = document.getMimeType() == null ? "application/octet-stream" : document.getMimeType().getMimeTypeString();
+
+        try (var stream = document.openStream()) {
+            exchange.getResponseHeaders().add("Content-Type", mimeType);
+            exchange.getResponseHeaders().add(SIGNED_BY_HEADER, URLEncoder.encode(signer, StandardCharsets.UTF_8));
+            exchange.getResponseHeaders().add(ISSUED_BY_HEADER, URLEncoder.encode(issuer, StandardCharsets.UTF_8));
+            EndpointUtils.addServerTiming(exchange);
+            exchange.sendResponseHeaders(200, 0);
+            try (var body = exchange.getResponseBody()) {
+                stream.transferTo(body);
+            }
+        } catch (IOException e) {
+            throw new ResponseNetworkErrorException(e);
+        }
+    }
+
+    @Override
+    public void onDocumentSignFailed(AutogramException error) {
+        EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(error), exchange);
+    }
+}
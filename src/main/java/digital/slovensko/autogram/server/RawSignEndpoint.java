@@ -0,0 +1,113 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import digital.slovensko.autogram.core.Autogram;
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.server.dto.SignRequestBody;
+import digital.slovensko.autogram.server.errors.RequestValidationException;
+import digital.slovensko.autogram.util.SpillingOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.MISSING_FIELD;
+
+/**
+ * Sign a document sent as raw bytes instead of base64 in JSON.
+ *
+ * The document is either the whole request body with the rest of the sign request in the
+ * X-Autogram-Sign-Request header, or the "document" part of a multipart/form-data body with the
+ * rest of the sign request in the "request" part. The sign request has the same format as the
+ * body of /sign, only without the document. Signed document is returned as raw bytes.
+ */
+public class RawSignEndpoint extends SignEndpoint {
+    public static final String SIGN_REQUEST_HEADER = "X-Autogram-Sign-Request";
+    public static final String FILENAME_HEADER = "X-Autogram-Filename";
+
+    public RawSignEndpoint(Autogram autogram, IdempotencyStore idempotencyStore) {
+        super(autogram, idempotencyStore);
+    }
+
+    @Override
+    protected SignRequestBody loadBody(HttpExchange exchange) throws IOException {
+        var contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (MultipartReader.isMultipart(contentType))
+            return loadFromMultipart(exchange, MultipartReader.getBoundary(contentType));
+
+        return loadFromOctetStream(exchange);
+    }
+
+    @Override
+    protected Responder createResponder(HttpExchange exchange) {
+        return new RawServerResponder(exchange);
+    }
+
+    private static SignRequestBody loadFromOctetStream(HttpExchange exchange) throws IOException {
+        var header = exchange.getRequestHeaders().getFirst(SIGN_REQUEST_HEADER);
+        if (header == null)
+            throw new RequestValidationException(MISSING_FIELD, SIGN_REQUEST_HEADER);
+
+        var body = EndpointUtils.loadFromJson(new StringReader(header), SignRequestBody.class);
+        var content = SignRequestBody.createContentBuffer();
+        try (content; var in = EndpointUtils.openRequestBody(exchange)) {
+            in.transferTo(content);
+        } catch (IOException | RuntimeException e) {
+            content.discard();
+            throw e;
+        }
+
+        var filename = exchange.getRequestHeaders().getFirst(FILENAME_HEADER);
+        attachDocument(body, filename == null ? null : URLDecoder.decode(filename, StandardCharsets.UTF_8), content);
+        return body;
+    }
+
+    private static SignRequestBody loadFromMultipart(HttpExchange exchange, String boundary) throws IOException {
+        SignRequestBody body = null;
+        SpillingOutputStream content = null;
+        String filename = null;
+
+        try {
+            var reader = new MultipartReader(EndpointUtils.openRequestBody(exchange), boundary);
+            while (reader.next()) {
+                if ("request".equals(reader.getName())) {
+                    var json = new ByteArrayOutputStream();
+                    reader.copyPart(json);
+                    body = EndpointUtils.loadFromJson(new StringReader(json.toString(StandardCharsets.UTF_8)), SignRequestBody.class);
+
+                } else if ("document".equals(reader.getName()) && content == null) {
+                    content = SignRequestBody.createContentBuffer();
+                    filename = reader.getFilename();
+                    try (var out = content) {
+                        reader.copyPart(out);
+                    }
+                }
+            }
+
+            if (body == null)
+                throw new RequestValidationException(MISSING_FIELD, "request");
+
+        } catch (IOException | RuntimeException e) {
+            if (content != null)
+                content.discard();
+
+            throw e;
+        }
+
+        attachDocument(body, filename, content);
+        return body;
+    }
+
+    private static void attachDocument(SignRequestBody body, String filename, SpillingOutputStream content) {
+        if (content == null || content.size() == 0) {
+            if (content != null)
+                content.discard();
+
+            throw new RequestValidationException(MISSING_FIELD, "Document");
+        }
+
+        body.attachDocument(filename, content);
+    }
+}
@@ -0,0 +1,106 @@
+package digital.slovensko.autogram.server;
+
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.core.SignedDocument;
+import digital.slovensko.autogram.core.errors.AutogramException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Signing job submitted through /jobs. Keeps the outcome until the client picks it up,
+ * so no exchange has to stay open while the user works with the document. The signed document
+ * is kept until the job is discarded.
+ */
+public class ServerJob extends Responder {
+    private final String id = UUID.randomUUID().toString();
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+    private volatile SignedDocument signedDocument;
+    private volatile AutogramException error;
+    private volatile Instant finishedAt;
+    private final AtomicBoolean discarded = new AtomicBoolean(false);
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void onDocumentSigned(SignedDocument signedDocument) {
+        signedDocument.keep();
+        this.signedDocument = signedDocument;
+        finish();
+    }
+
+    @Override
+    public void onDocumentSignFailed(AutogramException error) {
+        this.error = error;
+        finish();
+    }
+
+    private void finish() {
+        finishedAt = Instant.now();
+        finished.complete(null);
+    }
+
+    public boolean isFinished() {
+        return finished.isDone();
+    }
+
+    /**
+     * Run the action once the job is finished, right away if it is finished already.
+     */
+    void whenFinished(Runnable action) {
+        finished.thenRun(action);
+    }
+
+    /**
+     * Wait until the job is finished or the timeout elapses. Returns whether the job is finished.
+     */
+    public boolean await(Duration timeout) {
+        try {
+            finished.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return isFinished();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return isFinished();
+        }
+    }
+
+    /**
+     * Pass the outcome of the finished job to the responder.
+     */
+    public void respondTo(Responder responder) {
+        var signedDocument = this.signedDocument;
+        if (signedDocument != null) {
+            // the job may be evicted while its document is being read
+            signedDocument.keep();
+            try {
+                responder.onDocumentSigned(signedDocument);
+            } finally {
+                signedDocument.release();
+            }
+        } else
+            responder.onDocumentSignFailed(error);
+    }
+
+    /**
+     * Release the signed document, once the job is evicted and its outcome cannot be picked up any more.
+     */
+    void discard() {
+        var signedDocument = this.signedDocument;
+        if (signedDocument != null && discarded.compareAndSet(false, true))
+            signedDocument.release();
+    }
+
+    boolean isExpired(Instant now, Duration ttl) {
+        return finishedAt != null && finishedAt.plus(ttl).isBefore(now);
+    }
+}
@@ -0,0 +1,58 @@
+package digital.slovensko.autogram.server;
+
+import digital.slovensko.autogram.server.errors.JobNotFoundException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory table of jobs submitted through /jobs. Finished jobs are evicted once their
+ * outcome has been kept for the configured time to live, whether or not more requests come.
+ */
+public class ServerJobs {
+    private final ConcurrentHashMap<String, ServerJob> jobs = new ConcurrentHashMap<>();
+    private final Duration ttl;
+
+    public ServerJobs(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public void add(ServerJob job) {
+        evictExpired();
+        jobs.put(job.getId(), job);
+        job.whenFinished(() -> CompletableFuture.runAsync(() -> evict(job),
+                CompletableFuture.delayedExecutor(ttl.toMillis(), TimeUnit.MILLISECONDS)));
+    }
+
+    public ServerJob get(String id) throws JobNotFoundException {
+        evictExpired();
+        var job = jobs.get(id);
+        if (job == null)
+            throw new JobNotFoundException(id);
+
+        return job;
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+
+    private void evict(ServerJob job) {
+        if (jobs.remove(job.getId(), job))
+            job.discard();
+    }
+
+    private void evictExpired() {
+        var now = Instant.now();
+        jobs.values().removeIf(job -> {
+            if (!job.isExpired(now, ttl))
+                return false;
+
+            job.discard();
+            return true;
+        });
+    }
+}
@@ -1,17 +1,21 @@
 package digital.slovensko.autogram.server;
 
+import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import digital.slovensko.autogram.core.Responder;
 import digital.slovensko.autogram.core.SignedDocument;
 import digital.slovensko.autogram.core.errors.AutogramException;
 import digital.slovensko.autogram.core.errors.ResponseNetworkErrorException;
-import digital.slovensko.autogram.server.dto.ErrorResponse;
-import digital.slovensko.autogram.server.dto.SignResponse;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
 public class ServerResponder extends Responder {
+    private final static Gson gson = new Gson();
     private final HttpExchange exchange;
 
     public ServerResponder(HttpExchange exchange) {
@@ -23,9 +27,13 @@ public class ServerResponder extends Responder {
         var signer = signedDocument.getCertificate().getSubject().getPrincipal().toString();
         var issuer = signedDocument.getCertificate().getIssuer().getPrincipal().toString();
 
-        try {
-            var b64document = Base64.getEncoder().encodeToString(signedDocument.getDocument().openStream().readAllBytes());
-            EndpointUtils.respondWith(new SignResponse(b64document, signer, issuer), exchange);
+        try (var document = signedDocument.getDocument().openStream()) {
+            EndpointUtils.addServerTiming(exchange);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (var body = exchange.getResponseBody()) {
+                writeSignResponse(body, document, signer, issuer);
+            }
         } catch (IOException e) {
             throw new ResponseNetworkErrorException(e);
         }
@@ -35,4 +43,32 @@ public class ServerResponder extends Responder {
     public void onDocumentSignFailed(AutogramException error) {
         EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(error), exchange);
     }
+
+    /**
+     * Write the same JSON as {@link digital.slovensko.autogram.server.dto.SignResponse}, but encode the signed
+     * document straight into the response body, so the whole container is never held in memory as base64.
+     */
+    static void writeSignResponse(OutputStream body, InputStream document, String signer, String issuer) throws IOException {
+        body.write("{\"content\":\"".getBytes(StandardCharsets.UTF_8));
+        try (var encoder = Base64.getEncoder().wrap(new NonClosingOutputStream(body))) {
+            document.transferTo(encoder);
+        }
+        body.write(("\",\"signedBy\":" + gson.toJson(signer) + ",\"issuedBy\":" + gson.toJson(issuer) + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Listener that accepts connections and dispatches exchanges to the endpoints.
+ *
+ * Endpoints are written against {@link HttpHandler} and {@link Filter}, so every transport serves
+ * the same contexts. AutogramServer registers each context on all of its transports.
+ */
+public interface ServerTransport {
+    void createContext(String path, HttpHandler handler, List<Filter> filters);
+
+    void start();
+
+    void stop();
+
+    /**
+     * Creates the TCP transport. A build with another transport on the class path, e.g. the http2 profile,
+     * registers its factory as a service, the JDK HTTP server is used otherwise.
+     */
+    interface Factory {
+        ServerTransport create(String hostname, int port, boolean isHttps, Executor executor);
+    }
+}
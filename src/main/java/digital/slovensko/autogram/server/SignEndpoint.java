@@ -4,49 +4,204 @@ import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import digital.slovensko.autogram.core.Autogram;
+import digital.slovensko.autogram.core.Responder;
 import digital.slovensko.autogram.core.ResponderInBatch;
 import digital.slovensko.autogram.core.SigningJob;
 import digital.slovensko.autogram.core.errors.AutogramException;
 import digital.slovensko.autogram.server.dto.ErrorResponse;
 import digital.slovensko.autogram.server.dto.SignRequestBody;
+import digital.slovensko.autogram.server.errors.LocalFileAccessException;
 import digital.slovensko.autogram.server.errors.MalformedBodyException;
+import digital.slovensko.autogram.server.filters.AdmissionFilter;
+import digital.slovensko.autogram.util.Metrics;
+import digital.slovensko.autogram.util.Trace;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 
 import static digital.slovensko.autogram.server.errors.MalformedBodyException.Error.JSON_PARSING_FAILED;
 
 public class SignEndpoint implements HttpHandler {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final Duration REPLAY_WAIT = Duration.ofMinutes(1);
+
     private final Autogram autogram;
+    private final IdempotencyStore idempotencyStore;
+    private final LocalFiles localFiles;
 
     public SignEndpoint(Autogram autogram) {
+        this(autogram, null);
+    }
+
+    /**
+     * @param idempotencyStore outcomes of requests with an Idempotency-Key header, or null to ignore the header
+     */
+    public SignEndpoint(Autogram autogram, IdempotencyStore idempotencyStore) {
+        this(autogram, idempotencyStore, null);
+    }
+
+    /**
+     * @param localFiles directories whose files can be signed by path, or null to refuse documents given by path
+     */
+    public SignEndpoint(Autogram autogram, IdempotencyStore idempotencyStore, LocalFiles localFiles) {
         this.autogram = autogram;
+        this.idempotencyStore = idempotencyStore;
+        this.localFiles = localFiles;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        var trace = Trace.start(exchange.getRequestHeaders().getFirst(EndpointUtils.REQUEST_ID_HEADER));
+        exchange.getResponseHeaders().set(EndpointUtils.REQUEST_ID_HEADER, trace.getId());
+        try (var _ = trace.bind()) {
+            handle(exchange, trace);
+        }
+    }
+
+    private void handle(HttpExchange exchange, Trace trace) {
+        SignRequestBody body = null;
+        var idempotencyKey = getIdempotencyKey(exchange);
+        var outcome = idempotencyKey == null ? null : new ServerJob();
         try {
-            var body = EndpointUtils.loadFromJsonExchange(exchange, SignRequestBody.class);
+            try (var _ = Metrics.time("json_parse")) {
+                body = loadBody(exchange);
+            }
+
+            Path localFile = null;
+            if (body.getDocumentPath() != null) {
+                localFile = attachLocalFile(exchange, body);
+                // the signed file is saved once, a repeated request cannot be answered with it
+                outcome = null;
+            }
+
             body.validateDocument();
             body.validateSigningParameters();
 
-            var responder = body.getBatchId() == null ? new ServerResponder(exchange)
-                    : new ResponderInBatch(new ServerResponder(exchange), autogram.getBatch(body.getBatchId()));
+            var endpointResponder = localFile == null ? createResponder(exchange)
+                    : new LocalFileResponder(exchange, localFiles.resolveTarget(body.getTargetPath(), localFile), localFile);
+            var requestBody = body;
+            // jobs in a batch open no dialog, the user has approved the whole batch already
+            var admission = (AdmissionFilter.Admission) exchange.getAttribute(AdmissionFilter.ADMISSION_ATTRIBUTE);
+            var ticket = admission == null || body.getBatchId() != null ? null : admission.admit();
+            var serverResponder = new CleanupResponder(endpointResponder, () -> {
+                requestBody.discard();
+                if (ticket != null)
+                    ticket.release();
+            });
+            Responder responder = body.getBatchId() == null ? serverResponder
+                    : new ResponderInBatch(serverResponder, autogram.getBatch(body.getBatchId()));
+            if (outcome != null)
+                responder = new IdempotentResponder(responder, idempotencyStore, idempotencyKey, outcome);
             var job = SigningJob.buildFromRequest(body.getDocument(), body.getParameters(autogram.getTspSource(), autogram.isPlainXmlEnabled()), responder);
 
+            if (outcome != null) {
+                var previous = idempotencyStore.register(idempotencyKey, body.getDocumentFingerprint(), outcome);
+                if (previous != null) {
+                    outcome = null;
+                    body.discard();
+                    replay(exchange, previous, ticket);
+                    trace.log("replayed");
+                    return;
+                }
+            }
+
             if (body.getBatchId() != null)
                 autogram.batchSign(job, body.getBatchId());
             else
                 autogram.sign(job);
 
+            if (ticket != null)
+                ticket.handOver();
+
+            onSubmitted(exchange, endpointResponder);
+
         } catch (JsonSyntaxException | IOException e) {
+            discard(body);
             var response = ErrorResponseBuilder.buildFromException(new MalformedBodyException(JSON_PARSING_FAILED, e));
             EndpointUtils.respondWithError(response, exchange);
+            trace.log("rejected");
 
         } catch (AutogramException e) {
+            discard(body);
+            abandon(idempotencyKey, outcome, e);
             EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(e), exchange);
+            trace.log("rejected with " + e.getClass().getSimpleName());
 
         } catch (Exception e) {
+            discard(body);
+            abandon(idempotencyKey, outcome, new AutogramException("SIGNING_FAILED", e));
             EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(e), exchange);
+            trace.log("rejected with " + e.getClass().getSimpleName());
         }
     }
+
+    protected SignRequestBody loadBody(HttpExchange exchange) throws IOException {
+        return EndpointUtils.loadSignRequestFromExchange(exchange);
+    }
+
+    protected Responder createResponder(HttpExchange exchange) {
+        return new ServerResponder(exchange);
+    }
+
+    /**
+     * Called once the job is handed over for signing. The exchange is answered by the responder by default.
+     */
+    protected void onSubmitted(HttpExchange exchange, Responder responder) {
+    }
+
+    private Path attachLocalFile(HttpExchange exchange, SignRequestBody body) {
+        if (localFiles == null)
+            throw new LocalFileAccessException(LocalFileAccessException.Error.DISABLED);
+
+        localFiles.checkRequest(exchange);
+        var file = localFiles.resolveSource(body.getDocumentPath());
+        body.attachFile(file.toFile());
+        return file;
+    }
+
+    private IdempotencyStore.Key getIdempotencyKey(HttpExchange exchange) {
+        var value = idempotencyStore == null ? null : exchange.getRequestHeaders().getFirst(IDEMPOTENCY_KEY_HEADER);
+        if (value == null)
+            return null;
+
+        return new IdempotencyStore.Key(exchange.getRequestHeaders().getFirst("Origin"), value);
+    }
+
+    /**
+     * Answer a repeated request with the outcome of the first one, waiting for it if it is still in progress.
+     */
+    private void replay(HttpExchange exchange, ServerJob job, AdmissionControl.Ticket ticket) {
+        // the repeated request opens no dialog, it must not hold a slot of pending jobs
+        if (ticket != null)
+            ticket.release();
+
+        while (!job.await(REPLAY_WAIT)) {
+            if (Thread.currentThread().isInterrupted()) {
+                var error = new AutogramException("SIGNING_FAILED", new InterruptedException());
+                EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(error), exchange);
+                return;
+            }
+        }
+
+        exchange.getResponseHeaders().set(IDEMPOTENT_REPLAYED_HEADER, "true");
+        job.respondTo(createResponder(exchange));
+    }
+
+    /**
+     * Fail the outcome of a request that has been registered but never submitted, so repeated requests do not wait for it.
+     */
+    private void abandon(IdempotencyStore.Key idempotencyKey, ServerJob outcome, AutogramException error) {
+        if (outcome == null || outcome.isFinished())
+            return;
+
+        idempotencyStore.remove(idempotencyKey, outcome);
+        outcome.onDocumentSignFailed(error);
+    }
+
+    private static void discard(SignRequestBody body) {
+        if (body != null)
+            body.discard();
+    }
 }
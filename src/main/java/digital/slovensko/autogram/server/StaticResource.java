@@ -0,0 +1,159 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Classpath resource loaded once and served from memory.
+ *
+ * A gzip variant is compressed at load time, a brotli variant is used when a precompressed
+ * {@code <name>.br} resource is bundled next to the original. Every variant has its own strong ETag,
+ * so conditional requests are answered with 304 without sending the content again.
+ */
+public class StaticResource {
+    private final String mimeType;
+    private final String cacheControl;
+    private final Variant identity;
+    private final Variant gzip;
+    private final Variant brotli;
+
+    private StaticResource(String mimeType, String cacheControl, byte[] content, byte[] brotliContent) {
+        this.mimeType = mimeType;
+        this.cacheControl = cacheControl;
+
+        var tag = digest(content);
+        this.identity = new Variant(content, null, "\"" + tag + "\"");
+
+        var gzipContent = gzip(content);
+        this.gzip = gzipContent.length < content.length ? new Variant(gzipContent, "gzip", "\"" + tag + "-gzip\"") : null;
+        this.brotli = brotliContent != null ? new Variant(brotliContent, "br", "\"" + tag + "-br\"") : null;
+    }
+
+    /**
+     * @param cacheControl Cache-Control header value, use {@code immutable} only for versioned file names
+     */
+    public static StaticResource load(Class<?> base, String name, String mimeType, String cacheControl) {
+        try (var stream = base.getResourceAsStream(name)) {
+            if (stream == null)
+                throw new IllegalStateException("Missing resource " + name);
+
+            return new StaticResource(mimeType, cacheControl, stream.readAllBytes(), readOptional(base, name + ".br"));
+
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load resource " + name, e);
+        }
+    }
+
+    public void respond(HttpExchange exchange) throws IOException {
+        var variant = selectVariant(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+
+        try (exchange) {
+            var headers = exchange.getResponseHeaders();
+            headers.set("ETag", variant.etag);
+            headers.set("Cache-Control", cacheControl);
+            headers.set("Vary", "Accept-Encoding");
+
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), variant.etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            headers.set("Content-Type", mimeType);
+            if (variant.encoding != null)
+                headers.set("Content-Encoding", variant.encoding);
+
+            exchange.sendResponseHeaders(200, variant.content.length);
+            exchange.getResponseBody().write(variant.content);
+        }
+    }
+
+    Variant selectVariant(String acceptEncoding) {
+        if (brotli != null && accepts(acceptEncoding, "br"))
+            return brotli;
+
+        if (gzip != null && accepts(acceptEncoding, "gzip"))
+            return gzip;
+
+        return identity;
+    }
+
+    static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null)
+            return false;
+
+        // the coding listed explicitly takes precedence over the wildcard wherever they are (RFC 9110, section 12.5.3)
+        var wildcard = false;
+        for (var item : acceptEncoding.split(",")) {
+            var parts = item.split(";");
+            var name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals(encoding))
+                return isAcceptable(parts);
+
+            if (name.equals("*"))
+                wildcard = isAcceptable(parts);
+        }
+
+        return wildcard;
+    }
+
+    private static boolean isAcceptable(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            var parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+            if (parameter.startsWith("q=") && parameter.substring(2).trim().matches("0(\\.0*)?"))
+                return false;
+        }
+
+        return true;
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+
+        for (var tag : ifNoneMatch.split(",")) {
+            var trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag))
+                return true;
+        }
+
+        return false;
+    }
+
+    private static byte[] readOptional(Class<?> base, String name) throws IOException {
+        try (InputStream stream = base.getResourceAsStream(name)) {
+            return stream == null ? null : stream.readAllBytes();
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        var out = new ByteArrayOutputStream(content.length / 3);
+        try (var gzip = new GZIPOutputStream(out) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static String digest(byte[] content) {
+        try {
+            var hash = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    record Variant(byte[] content, String encoding, String etag) {
+    }
+}
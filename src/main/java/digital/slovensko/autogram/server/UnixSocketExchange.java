@@ -0,0 +1,545 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Single HTTP/1.1 request and response on a Unix domain socket connection.
+ *
+ * Request bodies with Content-Length or chunked transfer coding are supported. The response body is
+ * sent with Content-Length when the length is known and chunked otherwise, like in the JDK HTTP server.
+ * As there, the exchange ends when it or its response body is closed, which may happen on another thread
+ * long after the handler has returned, e.g. once the user has signed the document.
+ */
+class UnixSocketExchange extends HttpExchange {
+    private static final int MAX_HEADERS_LENGTH = 64 * 1024;
+    private static final int MAX_DRAINED_LENGTH = 64 * 1024;
+    // peers of Unix domain sockets have no address, the local machine stands in for them
+    private static final InetSocketAddress LOCAL_ADDRESS = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+    private final OutputStream connection;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final InputStream rawRequestBody;
+    private final ResponseStream rawResponseBody = new ResponseStream();
+    private InputStream requestBody;
+    private OutputStream responseBody;
+    private OutputStream target;
+    private int responseCode = -1;
+    private boolean keepAlive;
+    private boolean closed = false;
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    private UnixSocketExchange(InputStream in, OutputStream connection, String method, URI uri, String protocol, Headers requestHeaders) {
+        this.connection = connection;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.rawRequestBody = createRequestBody(in, requestHeaders);
+        this.requestBody = rawRequestBody;
+        this.responseBody = rawResponseBody;
+
+        var connectionHeader = requestHeaders.getFirst("Connection");
+        if (protocol.equals("HTTP/1.0"))
+            keepAlive = connectionHeader != null && connectionHeader.equalsIgnoreCase("keep-alive");
+        else
+            keepAlive = connectionHeader == null || !connectionHeader.equalsIgnoreCase("close");
+    }
+
+    /**
+     * Read the next request from the connection, returns null when the client has closed it.
+     */
+    static UnixSocketExchange read(InputStream in, OutputStream out) throws IOException {
+        var length = new int[]{0};
+        var requestLine = readLine(in, length);
+        if (requestLine == null)
+            return null;
+
+        var parts = requestLine.split(" ");
+        if (parts.length != 3 || !parts[2].startsWith("HTTP/1."))
+            throw new IOException("Malformed request line");
+
+        var headers = new Headers();
+        while (true) {
+            var line = readLine(in, length);
+            if (line == null)
+                throw new IOException("Unexpected end of headers");
+
+            if (line.isEmpty())
+                break;
+
+            var separator = line.indexOf(':');
+            if (separator <= 0)
+                throw new IOException("Malformed header");
+
+            headers.add(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+        }
+
+        URI uri;
+        try {
+            uri = new URI(parts[1]);
+        } catch (URISyntaxException e) {
+            throw new IOException("Malformed request target", e);
+        }
+
+        if ("100-continue".equalsIgnoreCase(headers.getFirst("Expect"))) {
+            out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        return new UnixSocketExchange(in, out, parts[0], uri, parts[2], headers);
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = this.keepAlive && keepAlive;
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    /**
+     * Contexts of this transport are not HttpServer contexts, endpoints do not use them.
+     */
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    /**
+     * Wait until the exchange is closed, the next request on the connection can be read only afterwards.
+     */
+    void awaitCompletion() throws InterruptedException {
+        completed.await();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+
+            closed = true;
+        }
+
+        try {
+            if (target == null) {
+                keepAlive = false;
+                return;
+            }
+
+            responseBody.close();
+            if (!drain(rawRequestBody))
+                keepAlive = false;
+
+        } catch (IOException e) {
+            keepAlive = false;
+        } finally {
+            completed.countDown();
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (target != null)
+            throw new IOException("Headers already sent");
+
+        responseCode = rCode;
+        var hasBody = responseLength >= 0 && rCode != 204 && rCode != 304 && !method.equalsIgnoreCase("HEAD");
+        if (!hasBody) {
+            if (rCode != 204 && rCode != 304)
+                responseHeaders.set("Content-Length", "0");
+        } else if (responseLength == 0) {
+            responseHeaders.set("Transfer-Encoding", "chunked");
+        } else {
+            responseHeaders.set("Content-Length", Long.toString(responseLength));
+        }
+
+        if (!keepAlive)
+            responseHeaders.set("Connection", "close");
+
+        var head = new StringBuilder("HTTP/1.1 ").append(rCode).append(' ').append(reason(rCode)).append("\r\n");
+        responseHeaders.forEach((name, values) -> {
+            for (var value : values)
+                head.append(name).append(": ").append(value).append("\r\n");
+        });
+        head.append("\r\n");
+        connection.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+        if (!hasBody)
+            target = new FixedLengthOutputStream(connection, 0);
+        else if (responseLength == 0)
+            target = new ChunkedOutputStream(connection);
+        else
+            target = new FixedLengthOutputStream(connection, responseLength);
+
+        connection.flush();
+
+        // without a body there is nothing left to wait for, the JDK HTTP server ends such exchanges too
+        if (!hasBody)
+            close();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return LOCAL_ADDRESS;
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return LOCAL_ADDRESS;
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null)
+            attributes.remove(name);
+        else
+            attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null)
+            requestBody = i;
+
+        if (o != null)
+            responseBody = o;
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    private static InputStream createRequestBody(InputStream in, Headers headers) {
+        var transferEncoding = headers.getFirst("Transfer-Encoding");
+        if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked"))
+            return new ChunkedInputStream(in);
+
+        var contentLength = headers.getFirst("Content-Length");
+        return new FixedLengthInputStream(in, contentLength == null ? 0 : Long.parseLong(contentLength.trim()));
+    }
+
+    /**
+     * Skip the rest of a request body not read by the handler, so the next request can be read.
+     * Returns false if there was too much of it and the connection should rather be closed.
+     */
+    private static boolean drain(InputStream body) throws IOException {
+        var skipped = 0L;
+        var buffer = new byte[8192];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            skipped += read;
+            if (skipped > MAX_DRAINED_LENGTH)
+                return false;
+        }
+
+        return true;
+    }
+
+    private static String readLine(InputStream in, int[] length) throws IOException {
+        var line = new ByteArrayOutputStream();
+        while (true) {
+            var b = in.read();
+            if (b == -1) {
+                if (line.size() == 0)
+                    return null;
+
+                throw new IOException("Unexpected end of stream");
+            }
+
+            if (++length[0] > MAX_HEADERS_LENGTH)
+                throw new IOException("Request headers are too long");
+
+            if (b == '\n')
+                return line.toString(StandardCharsets.ISO_8859_1).stripTrailing();
+
+            line.write(b);
+        }
+    }
+
+    private static String reason(int code) {
+        return switch (code) {
+            case 200 -> "OK";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 413 -> "Content Too Large";
+            case 429 -> "Too Many Requests";
+            case 500 -> "Internal Server Error";
+            case 503 -> "Service Unavailable";
+            default -> "";
+        };
+    }
+
+    /**
+     * Response body stream handed out before the headers are sent, writes go to the stream chosen
+     * by {@link #sendResponseHeaders(int, long)}.
+     */
+    private class ResponseStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target == null)
+                throw new IOException("Response headers have not been sent");
+
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (target != null)
+                target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (target != null)
+                target.close();
+
+            // closing the response body ends the exchange, like in the JDK HTTP server
+            UnixSocketExchange.this.close();
+        }
+    }
+
+    private static class FixedLengthInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        FixedLengthInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0)
+                return -1;
+
+            var read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1)
+                throw new IOException("Unexpected end of request body");
+
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            // the connection stays open for the next request
+        }
+    }
+
+    private static class ChunkedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining = 0;
+        private boolean finished = false;
+
+        ChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (finished)
+                return -1;
+
+            if (remaining == 0) {
+                remaining = readChunkSize();
+                if (remaining == 0) {
+                    finished = true;
+                    skipTrailers();
+                    return -1;
+                }
+            }
+
+            var read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1)
+                throw new IOException("Unexpected end of request body");
+
+            remaining -= read;
+            if (remaining == 0 && !"".equals(readLine(in, new int[]{0})))
+                throw new IOException("Malformed chunk");
+
+            return read;
+        }
+
+        // trailers are not used by any endpoint
+        private void skipTrailers() throws IOException {
+            var length = new int[]{0};
+            var line = readLine(in, length);
+            while (line != null && !line.isEmpty())
+                line = readLine(in, length);
+        }
+
+        private long readChunkSize() throws IOException {
+            var line = readLine(in, new int[]{0});
+            if (line == null)
+                throw new IOException("Unexpected end of request body");
+
+            var extension = line.indexOf(';');
+            try {
+                return Long.parseLong((extension == -1 ? line : line.substring(0, extension)).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed chunk size", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            // the connection stays open for the next request
+        }
+    }
+
+    private static class FixedLengthOutputStream extends FilterOutputStream {
+        private long remaining;
+
+        FixedLengthOutputStream(OutputStream out, long length) {
+            super(out);
+            this.remaining = length;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > remaining)
+                throw new IOException("Response body is longer than announced");
+
+            out.write(b, off, len);
+            remaining -= len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+            if (remaining > 0)
+                throw new IOException("Response body is shorter than announced");
+        }
+    }
+
+    private static class ChunkedOutputStream extends FilterOutputStream {
+        private boolean closed = false;
+
+        ChunkedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed)
+                throw new IOException("Stream is closed");
+
+            if (len == 0)
+                return;
+
+            out.write((Integer.toHexString(len) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(b, off, len);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+
+            closed = true;
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+    }
+}
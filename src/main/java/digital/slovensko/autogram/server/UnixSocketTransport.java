@@ -0,0 +1,224 @@
+package digital.slovensko.autogram.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
+import digital.slovensko.autogram.core.errors.ServerNotCreatedException;
+import digital.slovensko.autogram.util.Logging;
+import jdk.net.ExtendedSocketOptions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * HTTP/1.1 transport on a Unix domain socket for integrations running on the same machine.
+ *
+ * There is no TCP or TLS handshake. Access is controlled by the file system: the socket file is
+ * readable and writable by its owner only, and where the platform reports peer credentials,
+ * connections from other users are refused as well. The socket is bound in a private directory and
+ * moved to its path once its permissions are set, so it is never reachable by others.
+ */
+public class UnixSocketTransport implements ServerTransport {
+    private final Path path;
+    private final Executor executor;
+    private final ServerSocketChannel channel;
+    private final Object fileKey;
+    private final List<Context> contexts = new CopyOnWriteArrayList<>();
+
+    public UnixSocketTransport(Path path, Executor executor) {
+        this.path = path;
+        this.executor = executor;
+        this.channel = bind(path);
+        this.fileKey = getSocketFileKey(path);
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler, List<Filter> filters) {
+        contexts.add(new Context(path, handler, List.copyOf(filters)));
+    }
+
+    @Override
+    public void start() {
+        Thread.ofPlatform().daemon().name("autogram-unix-socket").start(this::accept);
+    }
+
+    @Override
+    public void stop() {
+        try {
+            channel.close();
+            // another instance may have replaced the socket since, only the one bound here is removed
+            if (fileKey != null && fileKey.equals(getSocketFileKey(path)))
+                Files.deleteIfExists(path);
+        } catch (IOException e) {
+            Logging.log("Failed to close Unix domain socket " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static ServerSocketChannel bind(Path path) {
+        try {
+            deleteLeftoverSocket(path);
+
+            var channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                channel.bind(UnixDomainSocketAddress.of(path));
+                return channel;
+            }
+
+            var directory = Files.createTempDirectory(path.toAbsolutePath().getParent(), ".autogram-",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            try {
+                var privatePath = directory.resolve("socket");
+                channel.bind(UnixDomainSocketAddress.of(privatePath));
+                Files.setPosixFilePermissions(privatePath, PosixFilePermissions.fromString("rw-------"));
+                Files.move(privatePath, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                channel.close();
+                Files.deleteIfExists(directory.resolve("socket"));
+                throw e;
+            } finally {
+                Files.deleteIfExists(directory);
+            }
+
+            return channel;
+
+        } catch (IOException e) {
+            throw new ServerNotCreatedException(e);
+        }
+    }
+
+    /**
+     * A socket file left over by a previous run would block binding. Anything else at the path is kept
+     * and the server is not created.
+     */
+    private static void deleteLeftoverSocket(Path path) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+
+        if (!attributes.isOther())
+            throw new FileAlreadyExistsException(path.toString(), null, "not a socket");
+
+        Files.delete(path);
+    }
+
+    private static Object getSocketFileKey(Path path) {
+        try {
+            var attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return attributes.isOther() ? attributes.fileKey() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void accept() {
+        while (channel.isOpen()) {
+            SocketChannel connection;
+            try {
+                connection = channel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                Logging.log("Failed to accept connection on " + path + ": " + e.getMessage());
+                continue;
+            }
+
+            try {
+                executor.execute(() -> serve(connection));
+            } catch (RejectedExecutionException e) {
+                close(connection);
+            }
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        try (connection) {
+            if (!isOwner(connection))
+                return;
+
+            var in = new BufferedInputStream(Channels.newInputStream(connection));
+            var out = new BufferedOutputStream(Channels.newOutputStream(connection));
+            while (true) {
+                var exchange = UnixSocketExchange.read(in, out);
+                if (exchange == null)
+                    return;
+
+                dispatch(exchange);
+                // endpoints waiting for the user answer from another thread after the handler has returned
+                exchange.awaitCompletion();
+                if (!exchange.isKeepAlive())
+                    return;
+            }
+        } catch (IOException e) {
+            // client has closed the connection or sent a malformed request
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch(UnixSocketExchange exchange) throws IOException {
+        // the longest matching prefix wins, like in the JDK HTTP server
+        var requestPath = exchange.getRequestURI().getPath();
+        Context match = null;
+        for (var context : contexts)
+            if (requestPath.startsWith(context.path) && (match == null || context.path.length() > match.path.length()))
+                match = context;
+
+        if (match == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        try {
+            new Filter.Chain(match.filters, match.handler).doFilter(exchange);
+        } catch (RuntimeException e) {
+            // the response may be half written, the connection cannot be reused
+            exchange.setKeepAlive(false);
+            exchange.close();
+            Logging.log("Unhandled exception on " + requestPath + ": " + e);
+        }
+    }
+
+    private boolean isOwner(SocketChannel connection) throws IOException {
+        try {
+            var peer = connection.getOption(ExtendedSocketOptions.SO_PEERCRED);
+            return peer.user().getName().equals(Files.getOwner(path).getName());
+        } catch (UnsupportedOperationException e) {
+            // no peer credentials on this platform, file permissions are the only check
+            return true;
+        }
+    }
+
+    private static void close(SocketChannel connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    private record Context(String path, HttpHandler handler, List<Filter> filters) {
+    }
+}
@@ -0,0 +1,55 @@
+package digital.slovensko.autogram.server;
+
+import com.google.gson.JsonSyntaxException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import digital.slovensko.autogram.core.SignatureValidator;
+import digital.slovensko.autogram.server.dto.ValidationRequestBody;
+import digital.slovensko.autogram.server.dto.ValidationResponseBody;
+import digital.slovensko.autogram.server.errors.MalformedBodyException;
+import digital.slovensko.autogram.server.errors.ValidatorNotReadyException;
+import eu.europa.esig.dss.model.DSSDocument;
+
+import java.io.IOException;
+
+import static digital.slovensko.autogram.server.errors.MalformedBodyException.Error.JSON_PARSING_FAILED;
+import static digital.slovensko.autogram.util.DSSUtils.createDocumentValidator;
+
+public class ValidateEndpoint implements HttpHandler {
+    private final ValidationPool pool;
+
+    public ValidateEndpoint(ValidationPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) {
+        try {
+            var body = EndpointUtils.loadFromJsonExchange(exchange, ValidationRequestBody.class);
+            var document = body.getDocument();
+            var validator = SignatureValidator.getInstance();
+            if (!validator.isInitialized())
+                throw new ValidatorNotReadyException();
+
+            var response = pool.run(() -> validate(validator, document, body.isHtmlIncluded()));
+            EndpointUtils.respondWith(response, exchange);
+
+        } catch (JsonSyntaxException | IOException e) {
+            var response = ErrorResponseBuilder.buildFromException(new MalformedBodyException(JSON_PARSING_FAILED, e));
+            EndpointUtils.respondWithError(response, exchange);
+
+        } catch (Exception e) {
+            EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(e), exchange);
+        }
+    }
+
+    private static ValidationResponseBody validate(SignatureValidator validator, DSSDocument document, boolean includeHtml) {
+        var documentValidator = createDocumentValidator(document);
+        if (documentValidator == null)
+            return ValidationResponseBody.empty();
+
+        var reports = validator.validate(documentValidator);
+        var html = includeHtml ? SignatureValidator.getSignatureValidationReportHTML(reports) : null;
+        return ValidationResponseBody.fromReports(reports, html);
+    }
+}
@@ -0,0 +1,71 @@
+package digital.slovensko.autogram.server;
+
+import digital.slovensko.autogram.server.errors.ServerBusyException;
+import digital.slovensko.autogram.server.errors.ValidationTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bounded pool of threads validating signed documents received by /validate.
+ *
+ * Validation is CPU bound and may wait for OCSP and CRL responders, so a client validating many documents
+ * at once gets a fixed number of threads and a bounded queue, and is refused beyond that.
+ */
+public class ValidationPool {
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    public ValidationPool(int threads, int queueSize, Duration timeout) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), Thread.ofPlatform().daemon().name("autogram-validation-", 0).factory());
+        this.timeout = timeout;
+    }
+
+    /**
+     * Run the task on the pool and wait for its result, at most the timeout including the time spent in the queue.
+     */
+    public <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new ServerBusyException("validation");
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        } catch (TimeoutException e) {
+            // DSS does not check for interrupts everywhere, the thread may stay busy until the validation ends
+            future.cancel(true);
+            throw new ValidationTimeoutException(timeout.toSeconds());
+
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,55 @@
+package digital.slovensko.autogram.server;
+
+import digital.slovensko.autogram.server.dto.VisualizationResponseBody;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rendered visualizations, least recently used ones are dropped once their total size exceeds the limit.
+ *
+ * Portals showing the preview of a document usually request it again when the user signs it, rendering
+ * a PDF or running an XSLT transformation is the costly part of both.
+ */
+public class VisualizationCache {
+    private final long maxBytes;
+    private final LinkedHashMap<Key, VisualizationResponseBody> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    public VisualizationCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized VisualizationResponseBody get(Key key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(Key key, VisualizationResponseBody visualization) {
+        // visualizations larger than the whole cache would only evict everything else
+        if (visualization.size() > maxBytes)
+            return;
+
+        var previous = entries.put(key, visualization);
+        if (previous != null)
+            bytes -= previous.size();
+        bytes += visualization.size();
+
+        Iterator<Map.Entry<Key, VisualizationResponseBody>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().size();
+            iterator.remove();
+        }
+    }
+
+    public synchronized long size() {
+        return bytes;
+    }
+
+    /**
+     * @param documentDigest digest of the document as it is signed, i.e. after building the XML Datacontainer
+     * @param transformationDigest digest of the transformation and its output type, empty without transformation
+     */
+    public record Key(String documentDigest, String transformationDigest, int dpi) {
+    }
+}
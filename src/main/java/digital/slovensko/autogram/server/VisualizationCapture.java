@@ -0,0 +1,57 @@
+package digital.slovensko.autogram.server;
+
+import digital.slovensko.autogram.server.dto.VisualizationResponseBody;
+import digital.slovensko.autogram.ui.Visualizer;
+import eu.europa.esig.dss.model.DSSDocument;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+
+/**
+ * Visualizer that keeps what would be shown in the signing dialog, so it can be sent to the client instead.
+ */
+class VisualizationCapture implements Visualizer {
+    private VisualizationResponseBody result = new VisualizationResponseBody("UNSUPPORTED", null, null, null);
+
+    VisualizationResponseBody getResult() {
+        return result;
+    }
+
+    @Override
+    public void showUnsupportedVisualization() {
+        result = new VisualizationResponseBody("UNSUPPORTED", null, null, null);
+    }
+
+    @Override
+    public void showPDFVisualization(ArrayList<byte[]> pages) {
+        var encoder = Base64.getEncoder();
+        result = new VisualizationResponseBody("PDF", "image/png", null, pages.stream().map(encoder::encodeToString).toList());
+    }
+
+    @Override
+    public void showHTMLVisualization(String document) {
+        result = new VisualizationResponseBody("HTML", "text/html", document, null);
+    }
+
+    @Override
+    public void showPlainTextVisualization(String document) {
+        result = new VisualizationResponseBody("TEXT", "text/plain", document, null);
+    }
+
+    @Override
+    public void showImageVisualization(DSSDocument document) {
+        try (var stream = document.openStream()) {
+            result = new VisualizationResponseBody("IMAGE", document.getMimeType().getMimeTypeString(),
+                    Base64.getEncoder().encodeToString(stream.readAllBytes()), null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void setPrefWidth(double visualizationWidth) {
+        // the client lays the visualization out itself
+    }
+}
@@ -0,0 +1,137 @@
+package digital.slovensko.autogram.server;
+
+import com.google.gson.JsonSyntaxException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import digital.slovensko.autogram.core.Autogram;
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.core.SignedDocument;
+import digital.slovensko.autogram.core.SigningJob;
+import digital.slovensko.autogram.core.errors.AutogramException;
+import digital.slovensko.autogram.core.visualization.DocumentVisualizationBuilder;
+import digital.slovensko.autogram.server.dto.SignRequestBody;
+import digital.slovensko.autogram.server.dto.VisualizationResponseBody;
+import digital.slovensko.autogram.server.errors.InvalidUrlParamException;
+import digital.slovensko.autogram.server.errors.MalformedBodyException;
+import digital.slovensko.autogram.util.Metrics;
+import digital.slovensko.autogram.util.PDFUtils;
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.spi.DSSUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static digital.slovensko.autogram.server.errors.MalformedBodyException.Error.JSON_PARSING_FAILED;
+
+/**
+ * Renders the document the same way the signing dialog would, so portals can show the exact preview before
+ * sending the document for signing. Takes the same body as /sign.
+ */
+public class VisualizeEndpoint implements HttpHandler {
+    private static final int MIN_DPI = 36;
+    private static final int MAX_DPI = 600;
+
+    private final Autogram autogram;
+    private final VisualizationCache cache;
+
+    public VisualizeEndpoint(Autogram autogram, VisualizationCache cache) {
+        this.autogram = autogram;
+        this.cache = cache;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) {
+        SignRequestBody body = null;
+        try {
+            var dpi = getDpi(exchange.getRequestURI().getQuery());
+            body = EndpointUtils.loadSignRequestFromExchange(exchange);
+            body.validateDocument();
+            body.validateSigningParameters();
+
+            var job = SigningJob.buildFromRequest(body.getDocument(),
+                    body.getParameters(autogram.getTspSource(), autogram.isPlainXmlEnabled()), new DiscardingResponder());
+            var key = new VisualizationCache.Key(body.getDocumentFingerprint(),
+                    getTransformationDigest(job), dpi);
+
+            var visualization = cache.get(key);
+            if (visualization != null) {
+                Metrics.cacheHit("visualization");
+            } else {
+                Metrics.cacheMiss("visualization");
+                visualization = visualize(job, dpi);
+                cache.put(key, visualization);
+            }
+
+            EndpointUtils.respondWith(visualization, exchange);
+
+        } catch (JsonSyntaxException | IOException e) {
+            var response = ErrorResponseBuilder.buildFromException(new MalformedBodyException(JSON_PARSING_FAILED, e));
+            EndpointUtils.respondWithError(response, exchange);
+
+        } catch (Exception e) {
+            EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(e), exchange);
+
+        } finally {
+            if (body != null)
+                body.discard();
+        }
+    }
+
+    private static VisualizationResponseBody visualize(SigningJob job, int dpi) throws Exception {
+        var capture = new VisualizationCapture();
+        // the signing dialog refuses to show locked PDFs as well
+        if (PDFUtils.isPdfAndPasswordProtected(job.getDocument()))
+            return capture.getResult();
+
+        try (var _ = Metrics.time("visualization")) {
+            DocumentVisualizationBuilder.fromJob(job, dpi).initialize(capture);
+        }
+
+        return capture.getResult();
+    }
+
+    private int getDpi(String query) {
+        var values = EndpointUtils.parseQueryParam(query, "dpi");
+        if (values.isEmpty())
+            return autogram.getPdfDpi();
+
+        try {
+            var dpi = Integer.parseInt(values.getFirst());
+            if (dpi >= MIN_DPI && dpi <= MAX_DPI)
+                return dpi;
+
+        } catch (NumberFormatException e) {
+            // refused below
+        }
+
+        throw new InvalidUrlParamException(InvalidUrlParamException.Error.INVALID_DPI);
+    }
+
+    private static String getTransformationDigest(SigningJob job) {
+        var transformation = job.getParameters().getTransformation();
+        if (transformation == null)
+            return "";
+
+        var output = job.getParameters().getXsltDestinationType();
+        var content = (output == null ? "" : output) + "\n" + transformation;
+        return digest(DSSUtils.digest(DigestAlgorithm.SHA256, content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String digest(byte[] digest) {
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    /**
+     * The job is only visualized, it is never signed.
+     */
+    private static class DiscardingResponder extends Responder {
+        @Override
+        public void onDocumentSigned(SignedDocument signedDocument) {
+        }
+
+        @Override
+        public void onDocumentSignFailed(AutogramException error) {
+        }
+    }
+}
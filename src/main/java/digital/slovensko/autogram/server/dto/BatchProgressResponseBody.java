@@ -0,0 +1,4 @@
+package digital.slovensko.autogram.server.dto;
+
+public record BatchProgressResponseBody(String batchId, int totalNumberOfDocuments, int processedDocumentsCount,
+        int successfulDocumentsCount, int failedDocumentsCount, boolean ended) {}
@@ -3,6 +3,9 @@ package digital.slovensko.autogram.server.dto;
 public class Document {
     private String filename;
     private String content;
+    private String path;
+    private String digest;
+    private String digestAlgorithm;
 
     public Document(String content) {
         this.content = content;
@@ -13,6 +16,12 @@ public class Document {
         this.content = content;
     }
 
+    public Document(String filename, String digest, String digestAlgorithm) {
+        this.filename = filename;
+        this.digest = digest;
+        this.digestAlgorithm = digestAlgorithm;
+    }
+
     public String getFilename() {
         return filename;
     }
@@ -20,4 +29,22 @@ public class Document {
     public String getContent() {
         return content;
     }
+
+    /**
+     * Path of a local file to be signed instead of the content, see {@link digital.slovensko.autogram.server.LocalFiles}.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Base64 encoded digest of a document that is not sent at all, only a detached signature is created over it.
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    public String getDigestAlgorithm() {
+        return digestAlgorithm;
+    }
 }
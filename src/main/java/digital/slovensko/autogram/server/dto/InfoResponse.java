@@ -6,11 +6,13 @@ public class InfoResponse {
     private final String version;
     private final String status;
     private final List<String> availableDrivers;
+    private final int pendingJobs;
 
-    public InfoResponse(String version, String status, List<String> availableDrivers) {
+    public InfoResponse(String version, String status, List<String> availableDrivers, int pendingJobs) {
         this.version = version;
         this.status = status;
         this.availableDrivers = availableDrivers;
+        this.pendingJobs = pendingJobs;
     }
 
     public static String getStatus() {
@@ -7,6 +7,7 @@ import digital.slovensko.autogram.core.eforms.dto.XsltParams;
 import digital.slovensko.autogram.server.errors.MalformedBodyException;
 import digital.slovensko.autogram.server.errors.RequestValidationException;
 import digital.slovensko.autogram.server.errors.UnsupportedSignatureLevelException;
+import digital.slovensko.autogram.util.Metrics;
 import eu.europa.esig.dss.enumerations.ASiCContainerType;
 import eu.europa.esig.dss.enumerations.DigestAlgorithm;
 import eu.europa.esig.dss.enumerations.MimeType;
@@ -15,7 +16,6 @@ import eu.europa.esig.dss.enumerations.SignatureForm;
 import eu.europa.esig.dss.enumerations.SignatureLevel;
 import eu.europa.esig.dss.enumerations.SignaturePackaging;
 import eu.europa.esig.dss.model.DSSDocument;
-import eu.europa.esig.dss.model.InMemoryDocument;
 import eu.europa.esig.dss.spi.x509.tsp.TSPSource;
 
 import javax.xml.crypto.dsig.CanonicalizationMethod;
@@ -30,6 +30,7 @@ import static digital.slovensko.autogram.server.errors.MalformedBodyException.Er
 import static digital.slovensko.autogram.server.errors.MalformedBodyException.Error.INVALID_XSLT;
 import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.CONTAINER_MISMATCH;
 import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.CONTAINER_UNSUPPORTED;
+import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.DIGEST_UNSUPPORTED;
 import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.EMPTY_PARAMS_LEVEL;
 import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.ID_MISSING;
 import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.INVALID_PACKAGING;
@@ -96,6 +97,8 @@ public class ServerSigningParameters {
     private final TransformationOutputMimeType transformationMediaDestinationTypeDescription;
     private final String transformationTargetEnvironment;
     private final String fsFormId;
+    private transient String decodedSchema;
+    private transient String decodedTransformation;
 
     public ServerSigningParameters(LocalSignatureLevel level, ASiCContainerType container,
             String containerFilename, String containerXmlns, SignaturePackaging packaging,
@@ -204,8 +207,15 @@ public class ServerSigningParameters {
         if (!isBase64)
             return transformation;
 
+        if (decodedTransformation != null) {
+            Metrics.cacheHit("request_transformation");
+            return decodedTransformation;
+        }
+
+        Metrics.cacheMiss("request_transformation");
         try {
-            return new String(Base64.getDecoder().decode(transformation), StandardCharsets.UTF_8);
+            decodedTransformation = new String(Base64.getDecoder().decode(transformation), StandardCharsets.UTF_8);
+            return decodedTransformation;
         } catch (IllegalArgumentException e) {
             throw new MalformedBodyException(INVALID_XSLT);
         }
@@ -218,8 +228,15 @@ public class ServerSigningParameters {
         if (!isBase64)
             return schema;
 
+        if (decodedSchema != null) {
+            Metrics.cacheHit("request_schema");
+            return decodedSchema;
+        }
+
+        Metrics.cacheMiss("request_schema");
         try {
-            return new String(Base64.getDecoder().decode(schema), StandardCharsets.UTF_8);
+            decodedSchema = new String(Base64.getDecoder().decode(schema), StandardCharsets.UTF_8);
+            return decodedSchema;
         } catch (IllegalArgumentException e) {
             throw new MalformedBodyException(INVALID_XSD);
         }
@@ -272,7 +289,7 @@ public class ServerSigningParameters {
         return container;
     }
 
-    public void resolveSigningLevel(InMemoryDocument document) throws RequestValidationException {
+    public void resolveSigningLevel(DSSDocument document) throws RequestValidationException {
         if (level != null && level != LocalSignatureLevel.BASELINE_B && level != LocalSignatureLevel.BASELINE_T)
             return;
 
@@ -348,4 +365,30 @@ public class ServerSigningParameters {
                 throw new RequestValidationException(CONTAINER_MISMATCH, mimeType.getMimeTypeString());
         }
     }
+
+    /**
+     * Only the digest of the document is known, so the signature can neither embed the document nor be
+     * placed in a container or a PDF. The digest has to be computed with the algorithm used for signing.
+     */
+    public void validateDigestOnly(DigestAlgorithm documentDigestAlgorithm) throws RequestValidationException {
+        if (level == null)
+            throw new RequestValidationException(MISSING_FIELD, "Parameters.Level");
+
+        var supportedLevels = Arrays.asList(
+                LocalSignatureLevel.XAdES_BASELINE_B,
+                LocalSignatureLevel.CAdES_BASELINE_B,
+                LocalSignatureLevel.XAdES_BASELINE_T,
+                LocalSignatureLevel.CAdES_BASELINE_T);
+
+        if (!supportedLevels.contains(level) || container != null || packaging != SignaturePackaging.DETACHED)
+            throw new RequestValidationException(DIGEST_UNSUPPORTED);
+
+        // eForm resources are detected from the document content
+        if (autoLoadEform || getFsFormId() != null || containerXmlns != null)
+            throw new RequestValidationException(DIGEST_UNSUPPORTED);
+
+        var signingDigestAlgorithm = digestAlgorithm != null ? digestAlgorithm : DigestAlgorithm.SHA256;
+        if (signingDigestAlgorithm != documentDigestAlgorithm)
+            throw new RequestValidationException(DIGEST_UNSUPPORTED);
+    }
 }
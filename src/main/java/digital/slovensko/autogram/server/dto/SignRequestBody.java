@@ -1,25 +1,49 @@
 package digital.slovensko.autogram.server.dto;
 
+import digital.slovensko.autogram.core.Configuration;
+import digital.slovensko.autogram.core.SigningJob;
 import digital.slovensko.autogram.core.SigningParameters;
 import digital.slovensko.autogram.core.errors.TransformationParsingErrorException;
 import digital.slovensko.autogram.server.errors.MalformedBodyException;
 import digital.slovensko.autogram.server.errors.RequestValidationException;
+import digital.slovensko.autogram.util.Metrics;
+import digital.slovensko.autogram.util.SpillingOutputStream;
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
 import eu.europa.esig.dss.enumerations.MimeType;
-import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.enumerations.MimeTypeEnum;
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.DigestDocument;
 import eu.europa.esig.dss.spi.x509.tsp.TSPSource;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 
 import static digital.slovensko.autogram.core.AutogramMimeType.fromMimeTypeString;
 import static digital.slovensko.autogram.server.errors.MalformedBodyException.Error.BASE64_DECODING_FAILED;
+import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.DIGEST_WITH_CONTENT;
+import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.INVALID_DIGEST;
 import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.MISSING_FIELD;
 import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.MISSING_PARAMS;
 
 public class SignRequestBody {
-    private final Document document;
+    private static final long SPILL_THRESHOLD = Long.parseLong(Configuration.getProperty("server.request.spillThreshold"));
+    private static final int BASE64_CHUNK_LENGTH = 64 * 1024;
+
+    private Document document;
     private ServerSigningParameters parameters;
     private final String payloadMimeType;
     private final String batchId;
+    private final String targetPath;
+    private transient SpillingOutputStream content;
+    private transient SpillingOutputStream encodedContent;
+    private transient File file;
+    private transient MimeType mimeType;
 
     public SignRequestBody(Document document, ServerSigningParameters parameters, String payloadMimeType) {
         this(document, parameters, payloadMimeType, null);
@@ -31,16 +55,28 @@ public class SignRequestBody {
         this.parameters = parameters;
         this.payloadMimeType = payloadMimeType;
         this.batchId = batchId;
+        this.targetPath = null;
     }
 
     public void validateDocument() throws RequestValidationException, MalformedBodyException {
-        if (payloadMimeType == null)
-            throw new RequestValidationException(MISSING_FIELD, "PayloadMimeType");
-
         if (document == null)
             throw new RequestValidationException(MISSING_FIELD, "Document");
 
-        if (document.getContent() == null)
+        // either the document or its digest is signed, never both
+        if (document.getDigest() != null && (hasEncodedContent() || document.getPath() != null))
+            throw new RequestValidationException(DIGEST_WITH_CONTENT);
+
+        if (isDigestOnly()) {
+            validateDigest();
+            // there is no document to detect the signing level from, it has to be set explicitly
+            return;
+        }
+
+        // the MIME type of a local file can be detected from the file itself
+        if (payloadMimeType == null && file == null)
+            throw new RequestValidationException(MISSING_FIELD, "PayloadMimeType");
+
+        if (content == null && file == null && !hasEncodedContent())
             throw new RequestValidationException(MISSING_FIELD, "Document.Content");
 
 //      TODO: resolve values at class instantiation
@@ -51,14 +87,142 @@ public class SignRequestBody {
         if (parameters == null)
             parameters = new ServerSigningParameters();
 
-        parameters.resolveSigningLevel(getDocument());
+        try (var _ = Metrics.time("signing_level_detection")) {
+            parameters.resolveSigningLevel(getDocument());
+        }
+    }
+
+    /**
+     * The content is decoded on the first call only. Every call returns a new document over the decoded
+     * content, so the consumers can change its name or MIME type independently, while digests are computed
+     * once per request. Large documents are backed by a temporary file that is removed by {@link #discard()}.
+     */
+    public DSSDocument getDocument() {
+        if (isDigestOnly())
+            return getDigestDocument();
+
+        if (file != null)
+            return getFileDocument();
+
+        if (content == null) {
+            Metrics.cacheMiss("request_document");
+            content = encodedContent != null ? decodeEncodedContent(encodedContent) : decodeDocumentContent(document.getContent());
+            encodedContent = null;
+            // drop the encoded content, it may be held for as long as the user takes to sign
+            document = new Document(document.getFilename(), null);
+        } else {
+            Metrics.cacheHit("request_document");
+        }
+
+        return content.toDocument(document.getFilename(), getMimetype());
+    }
+
+    /**
+     * Use the document received outside of the JSON body, e.g. as raw bytes, instead of the encoded one.
+     */
+    public void attachDocument(String filename, SpillingOutputStream content) {
+        this.document = new Document(filename, null);
+        this.content = content;
+    }
+
+    /**
+     * Use the content read off the request stream in chunks instead of the one in the document, see
+     * {@link digital.slovensko.autogram.server.EndpointUtils#loadSignRequestFromExchange}. It is decoded
+     * like the document content on the first call of {@link #getDocument()}.
+     */
+    public void attachEncodedContent(SpillingOutputStream encodedContent) {
+        this.encodedContent = encodedContent;
+    }
+
+    /**
+     * Sign the local file instead of the content, it is read only when the document is signed.
+     */
+    public void attachFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Only the digest of the document is sent, a detached signature is created over it without the content.
+     */
+    public boolean isDigestOnly() {
+        return document != null && document.getDigest() != null && content == null && encodedContent == null
+                && file == null;
+    }
+
+    /**
+     * Identifies the document of a repeated request, the digest sent by the client is used as it is.
+     */
+    public String getDocumentFingerprint() {
+        if (isDigestOnly())
+            return getDocumentDigestAlgorithm().name() + ":" + document.getDigest();
+
+        return Base64.getEncoder().encodeToString(getDocument().getDigestValue(DigestAlgorithm.SHA256));
+    }
+
+    public String getDocumentPath() {
+        return document == null ? null : document.getPath();
+    }
+
+    public String getTargetPath() {
+        return targetPath;
+    }
+
+    private DSSDocument getFileDocument() {
+        var fileDocument = SigningJob.createDSSFileDocumentFromFile(file);
+        if (document.getFilename() != null)
+            fileDocument.setName(document.getFilename());
+        if (payloadMimeType != null)
+            fileDocument.setMimeType(getMimetype());
+
+        return fileDocument;
+    }
+
+    private DSSDocument getDigestDocument() {
+        var digestDocument = new DigestDocument(getDocumentDigestAlgorithm(), document.getDigest(), document.getFilename());
+        digestDocument.setMimeType(getMimetype());
+
+        return digestDocument;
+    }
+
+    private void validateDigest() throws RequestValidationException {
+        if (document.getFilename() == null)
+            throw new RequestValidationException(MISSING_FIELD, "Document.Filename");
+
+        var algorithm = getDocumentDigestAlgorithm();
+        try {
+            var length = MessageDigest.getInstance(algorithm.getJavaName()).getDigestLength();
+            if (Base64.getDecoder().decode(document.getDigest()).length != length)
+                throw new RequestValidationException(INVALID_DIGEST, algorithm.name());
+
+        } catch (IllegalArgumentException | NoSuchAlgorithmException e) {
+            throw new RequestValidationException(INVALID_DIGEST, algorithm.name());
+        }
+    }
+
+    private DigestAlgorithm getDocumentDigestAlgorithm() throws RequestValidationException {
+        if (document.getDigestAlgorithm() == null)
+            throw new RequestValidationException(MISSING_FIELD, "Document.DigestAlgorithm");
+
+        try {
+            return DigestAlgorithm.forName(document.getDigestAlgorithm());
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException(INVALID_DIGEST, document.getDigestAlgorithm());
+        }
+    }
+
+    public static SpillingOutputStream createContentBuffer() {
+        return new SpillingOutputStream(SPILL_THRESHOLD);
     }
 
-    public InMemoryDocument getDocument() {
-        var content = decodeDocumentContent(document.getContent(), isBase64());
-        var filename = document.getFilename();
+    public void discard() {
+        if (content != null)
+            content.discard();
+        if (encodedContent != null)
+            encodedContent.discard();
+    }
 
-        return new InMemoryDocument(content, filename, getMimetype());
+    private boolean hasEncodedContent() {
+        return encodedContent != null || document.getContent() != null;
     }
 
     public void validateSigningParameters() throws RequestValidationException, MalformedBodyException,
@@ -66,7 +230,10 @@ public class SignRequestBody {
         if (parameters == null)
             throw new RequestValidationException(MISSING_PARAMS);
 
-        parameters.validate(getDocument().getMimeType());
+        if (isDigestOnly())
+            parameters.validateDigestOnly(getDocumentDigestAlgorithm());
+        else
+            parameters.validate(getMimetype());
     }
 
     public SigningParameters getParameters(TSPSource tspSource, boolean plainXmlEnabled) {
@@ -78,21 +245,78 @@ public class SignRequestBody {
     }
 
     private MimeType getMimetype() {
-        return fromMimeTypeString(payloadMimeType.split(";")[0]);
+        // the content of a digest-only document cannot be read, so it must not be handled by its type
+        if (isDigestOnly())
+            return MimeTypeEnum.BINARY;
+
+        if (mimeType == null && payloadMimeType == null)
+            mimeType = getFileDocument().getMimeType();
+        else if (mimeType == null)
+            mimeType = fromMimeTypeString(payloadMimeType.split(";")[0]);
+
+        return mimeType;
     }
 
     private boolean isBase64() {
-        return payloadMimeType.contains("base64");
+        return payloadMimeType != null && payloadMimeType.contains("base64");
+    }
+
+    SpillingOutputStream decodeDocumentContent(String content) throws MalformedBodyException {
+        var out = createContentBuffer();
+        try (out) {
+            if (isBase64())
+                decodeBase64(content, out);
+            else
+                out.write(content.getBytes(StandardCharsets.UTF_8));
+
+        } catch (IllegalArgumentException e) {
+            out.discard();
+            throw new MalformedBodyException(BASE64_DECODING_FAILED);
+
+        } catch (IOException e) {
+            out.discard();
+            throw new UncheckedIOException(e);
+        }
+
+        return out;
     }
 
-    private static byte[] decodeDocumentContent(String content, boolean isBase64) throws MalformedBodyException {
-        if (isBase64)
-            try {
-                return Base64.getDecoder().decode(content);
-            } catch (IllegalArgumentException e) {
-                throw new MalformedBodyException(BASE64_DECODING_FAILED);
-            }
+    /**
+     * Content read off the request stream is used as it is unless it is base64 encoded, then it is decoded
+     * chunk by chunk and its buffer is discarded.
+     */
+    SpillingOutputStream decodeEncodedContent(SpillingOutputStream encoded) throws MalformedBodyException {
+        if (!isBase64())
+            return encoded;
+
+        var out = createContentBuffer();
+        try (out; var in = encoded.toDocument(null, null).openStream()) {
+            // the encoding is ASCII, so chunks are aligned to 4 characters like in decodeBase64
+            var decoder = Base64.getDecoder();
+            for (var chunk = in.readNBytes(BASE64_CHUNK_LENGTH); chunk.length > 0; chunk = in.readNBytes(BASE64_CHUNK_LENGTH))
+                out.write(decoder.decode(chunk));
+
+        } catch (IllegalArgumentException e) {
+            out.discard();
+            throw new MalformedBodyException(BASE64_DECODING_FAILED);
+
+        } catch (IOException e) {
+            out.discard();
+            throw new UncheckedIOException(e);
+
+        } finally {
+            encoded.discard();
+        }
+
+        return out;
+    }
 
-        return content.getBytes();
+    private static void decodeBase64(String content, OutputStream out) throws IOException {
+        // chunks are aligned to 4 characters, so each one decodes on its own
+        var decoder = Base64.getDecoder();
+        for (int start = 0; start < content.length(); start += BASE64_CHUNK_LENGTH) {
+            var end = Math.min(content.length(), start + BASE64_CHUNK_LENGTH);
+            out.write(decoder.decode(content.substring(start, end)));
+        }
     }
 }
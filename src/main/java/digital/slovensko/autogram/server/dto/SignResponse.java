@@ -10,4 +10,16 @@ public class SignResponse {
         this.signedBy = signedBy;
         this.issuedBy = issuedBy;
     }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getSignedBy() {
+        return signedBy;
+    }
+
+    public String getIssuedBy() {
+        return issuedBy;
+    }
 }
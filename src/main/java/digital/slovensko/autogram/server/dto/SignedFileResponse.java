@@ -0,0 +1,13 @@
+package digital.slovensko.autogram.server.dto;
+
+public class SignedFileResponse {
+    private String path;
+    private String signedBy;
+    private String issuedBy;
+
+    public SignedFileResponse(String path, String signedBy, String issuedBy) {
+        this.path = path;
+        this.signedBy = signedBy;
+        this.issuedBy = issuedBy;
+    }
+}
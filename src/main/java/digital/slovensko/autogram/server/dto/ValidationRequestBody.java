@@ -0,0 +1,42 @@
+package digital.slovensko.autogram.server.dto;
+
+import digital.slovensko.autogram.server.errors.MalformedBodyException;
+import digital.slovensko.autogram.server.errors.RequestValidationException;
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+
+import java.util.Base64;
+
+import static digital.slovensko.autogram.server.errors.MalformedBodyException.Error.BASE64_DECODING_FAILED;
+import static digital.slovensko.autogram.server.errors.RequestValidationException.Error.MISSING_FIELD;
+
+public class ValidationRequestBody {
+    private Document document;
+    private Boolean includeHtml;
+
+    public ValidationRequestBody(Document document, Boolean includeHtml) {
+        this.document = document;
+        this.includeHtml = includeHtml;
+    }
+
+    /**
+     * Signed document to be validated, its content is always encoded using base64.
+     */
+    public DSSDocument getDocument() throws RequestValidationException, MalformedBodyException {
+        if (document == null)
+            throw new RequestValidationException(MISSING_FIELD, "Document");
+
+        if (document.getContent() == null)
+            throw new RequestValidationException(MISSING_FIELD, "Document.Content");
+
+        try {
+            return new InMemoryDocument(Base64.getDecoder().decode(document.getContent()), document.getFilename());
+        } catch (IllegalArgumentException e) {
+            throw new MalformedBodyException(BASE64_DECODING_FAILED);
+        }
+    }
+
+    public boolean isHtmlIncluded() {
+        return Boolean.TRUE.equals(includeHtml);
+    }
+}
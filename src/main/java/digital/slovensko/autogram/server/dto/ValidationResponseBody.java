@@ -0,0 +1,38 @@
+package digital.slovensko.autogram.server.dto;
+
+import eu.europa.esig.dss.jaxb.object.Message;
+import eu.europa.esig.dss.validation.reports.Reports;
+
+import java.util.List;
+
+public record ValidationResponseBody(List<SignatureResult> signatures, String simpleReport, String detailedReport,
+        String html) {
+
+    public record SignatureResult(String id, String format, String indication, String subIndication,
+            String qualification, String signedBy, String signingTime, List<String> errors, List<String> warnings) {
+    }
+
+    public static ValidationResponseBody empty() {
+        return new ValidationResponseBody(List.of(), null, null, null);
+    }
+
+    public static ValidationResponseBody fromReports(Reports reports, String html) {
+        var report = reports.getSimpleReport();
+        var signatures = report.getSignatureIdList().stream().map(id -> new SignatureResult(
+                id,
+                toString(report.getSignatureFormat(id)),
+                toString(report.getIndication(id)),
+                toString(report.getSubIndication(id)),
+                toString(report.getSignatureQualification(id)),
+                report.getSignedBy(id),
+                report.getBestSignatureTime(id) == null ? null : report.getBestSignatureTime(id).toInstant().toString(),
+                report.getAdESValidationErrors(id).stream().map(Message::getValue).toList(),
+                report.getAdESValidationWarnings(id).stream().map(Message::getValue).toList())).toList();
+
+        return new ValidationResponseBody(signatures, reports.getXmlSimpleReport(), reports.getXmlDetailedReport(), html);
+    }
+
+    private static String toString(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
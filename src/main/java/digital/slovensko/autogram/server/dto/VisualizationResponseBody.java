@@ -0,0 +1,18 @@
+package digital.slovensko.autogram.server.dto;
+
+import java.util.List;
+
+/**
+ * Visualization shown to the user before signing. Only the fields for its type are set: {@code content} for HTML
+ * and TEXT, {@code pages} with base64 encoded PNGs for PDF, {@code content} with the base64 encoded image for IMAGE.
+ */
+public record VisualizationResponseBody(String type, String mimeType, String content, List<String> pages) {
+    public long size() {
+        var size = content == null ? 0L : content.length();
+        if (pages != null)
+            for (var page : pages)
+                size += page.length();
+
+        return size;
+    }
+}
@@ -0,0 +1,9 @@
+package digital.slovensko.autogram.server.errors;
+
+import digital.slovensko.autogram.core.errors.AutogramException;
+
+public class IdempotencyKeyReusedException extends AutogramException {
+    public IdempotencyKeyReusedException(String key) {
+        super(new Object[]{key});
+    }
+}
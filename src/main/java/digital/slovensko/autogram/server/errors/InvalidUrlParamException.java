@@ -9,7 +9,7 @@ public class InvalidUrlParamException extends AutogramException {
     }
 
     public enum Error {
-        MISSING_ASSET_NAME, ASSET_NOT_FOUND;
+        MISSING_ASSET_NAME, ASSET_NOT_FOUND, INVALID_WAIT, INVALID_DPI;
 
         private String toErrorCode() {
             return "InvalidUrlParamException." + this.name();
@@ -0,0 +1,17 @@
+package digital.slovensko.autogram.server.errors;
+
+import digital.slovensko.autogram.core.errors.AutogramException;
+
+public class LocalFileAccessException extends AutogramException {
+    public LocalFileAccessException(Error error, Object... i18nArgs) {
+        super(error.toErrorCode(), i18nArgs);
+    }
+
+    public enum Error {
+        DISABLED, NOT_LOCAL, NOT_ALLOWED;
+
+        private String toErrorCode() {
+            return "LocalFileAccessException." + this.name();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package digital.slovensko.autogram.server.errors;
+
+import digital.slovensko.autogram.core.errors.AutogramException;
+
+public class PayloadTooLargeException extends AutogramException {
+    public PayloadTooLargeException(long maxSize) {
+        super(new Object[]{maxSize});
+    }
+}
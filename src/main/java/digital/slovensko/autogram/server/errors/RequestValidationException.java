@@ -10,7 +10,8 @@ public class RequestValidationException extends AutogramException {
 
     public enum Error {
         EMPTY_PARAMS_LEVEL, UNSUPPORTED_SIGN_LEVEL, MISSING_PARAMS, MISSING_FIELD, MIME_TYPE_MISMATCH,
-        CONTAINER_UNSUPPORTED, INVALID_PACKAGING, TRANSFORMATION_MISSING, SCHEMA_MISSING, ID_MISSING, CONTAINER_MISMATCH;
+        CONTAINER_UNSUPPORTED, INVALID_PACKAGING, TRANSFORMATION_MISSING, SCHEMA_MISSING, ID_MISSING, CONTAINER_MISMATCH,
+        INVALID_DIGEST, DIGEST_UNSUPPORTED, DIGEST_WITH_CONTENT;
 
         private String toErrorCode() {
             return "RequestValidationException." + this.name();
@@ -0,0 +1,9 @@
+package digital.slovensko.autogram.server.errors;
+
+import digital.slovensko.autogram.core.errors.AutogramException;
+
+public class ServerBusyException extends AutogramException {
+    public ServerBusyException(String bulkhead) {
+        super(new Object[]{bulkhead});
+    }
+}
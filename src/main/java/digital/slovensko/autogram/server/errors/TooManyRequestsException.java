@@ -0,0 +1,9 @@
+package digital.slovensko.autogram.server.errors;
+
+import digital.slovensko.autogram.core.errors.AutogramException;
+
+public class TooManyRequestsException extends AutogramException {
+    public TooManyRequestsException(String origin) {
+        super(new Object[]{origin});
+    }
+}
@@ -0,0 +1,9 @@
+package digital.slovensko.autogram.server.errors;
+
+import digital.slovensko.autogram.core.errors.AutogramException;
+
+public class ValidationTimeoutException extends AutogramException {
+    public ValidationTimeoutException(long timeoutSeconds) {
+        super(new Object[]{timeoutSeconds});
+    }
+}
@@ -0,0 +1,87 @@
+package digital.slovensko.autogram.server.filters;
+
+import java.io.IOException;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import digital.slovensko.autogram.server.AdmissionControl;
+import digital.slovensko.autogram.server.errors.TooManyRequestsException;
+
+/**
+ * Admit exchanges that submit signing jobs only while there are free slots for pending jobs.
+ *
+ * Only jobs that open a dialog wait for the user, so the endpoint decides whether to take a ticket
+ * once it has read the request, using the {@link Admission} stored in the ADMISSION_ATTRIBUTE. Refused
+ * exchanges are answered with 429 and Retry-After. Once the endpoint hands the ticket over to the job,
+ * the job responder releases it, otherwise it is released when the exchange is handled.
+ */
+public class AdmissionFilter extends Filter {
+    public static final String ADMISSION_ATTRIBUTE = "autogram.admission";
+
+    private final AdmissionControl admissionControl;
+    private final long retryAfterSeconds;
+
+    public AdmissionFilter(AdmissionControl admissionControl, long retryAfterSeconds) {
+        this.admissionControl = admissionControl;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public String description() {
+        return "Limit pending signing jobs";
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+            chain.doFilter(exchange);
+            return;
+        }
+
+        var admission = new Admission(exchange);
+        exchange.setAttribute(ADMISSION_ATTRIBUTE, admission);
+        try {
+            chain.doFilter(exchange);
+        } finally {
+            admission.releaseUnlessHandedOver();
+        }
+    }
+
+    private static String getOrigin(HttpExchange exchange) {
+        var origin = exchange.getRequestHeaders().getFirst("Origin");
+        if (origin != null && !origin.isBlank())
+            return origin;
+
+        return exchange.getRemoteAddress().getAddress().getHostAddress();
+    }
+
+    public class Admission {
+        private final HttpExchange exchange;
+        private AdmissionControl.Ticket ticket;
+
+        private Admission(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        /**
+         * Take a ticket for a job that opens a dialog, or throw {@link TooManyRequestsException} if there are
+         * too many pending jobs.
+         */
+        public AdmissionControl.Ticket admit() {
+            var origin = getOrigin(exchange);
+            ticket = admissionControl.tryAdmit(origin);
+            if (ticket == null) {
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfterSeconds));
+                throw new TooManyRequestsException(origin);
+            }
+
+            return ticket;
+        }
+
+        private void releaseUnlessHandedOver() {
+            if (ticket != null && !ticket.isHandedOver())
+                ticket.release();
+        }
+    }
+}
@@ -13,14 +13,25 @@ import com.sun.net.httpserver.HttpExchange;
  * Access-Control-Allow-*...
  */
 public class AutogramCorsFilter extends Filter {
+    private static final List<String> DEFAULT_ALLOWED_HEADERS = List.of("Content-Type", "Authorization");
+
     private final List<String> allowedMethods;
+    private final List<String> allowedHeaders;
+    private final List<String> exposedHeaders;
 
     public AutogramCorsFilter(String allowedMethod) {
         this(List.of(allowedMethod));
     }
 
     public AutogramCorsFilter(List<String> allowedMethod) {
+        this(allowedMethod, List.of(), List.of());
+    }
+
+    public AutogramCorsFilter(List<String> allowedMethod, List<String> extraAllowedHeaders, List<String> exposedHeaders) {
         this.allowedMethods = allowedMethod;
+        this.allowedHeaders = new ArrayList<>(DEFAULT_ALLOWED_HEADERS);
+        this.allowedHeaders.addAll(extraAllowedHeaders);
+        this.exposedHeaders = exposedHeaders;
     }
 
     @Override
@@ -37,7 +48,10 @@ public class AutogramCorsFilter extends Filter {
         exchange.getResponseHeaders().add("Access-Control-Allow-Methods",
                 String.join(",", methods));
         exchange.getResponseHeaders().add("Access-Control-Allow-Headers",
-                "Content-Type, Authorization");
+                String.join(", ", allowedHeaders));
+        if (!exposedHeaders.isEmpty())
+            exchange.getResponseHeaders().add("Access-Control-Expose-Headers",
+                    String.join(", ", exposedHeaders));
 
         // Allow preflight requests
         if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
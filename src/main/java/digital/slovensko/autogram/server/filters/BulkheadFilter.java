@@ -0,0 +1,90 @@
+package digital.slovensko.autogram.server.filters;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import digital.slovensko.autogram.server.EndpointUtils;
+import digital.slovensko.autogram.server.ErrorResponseBuilder;
+import digital.slovensko.autogram.server.errors.ServerBusyException;
+
+/**
+ * Limit the number of exchanges handled concurrently by a group of endpoints.
+ *
+ * Exchanges run on virtual threads, so waiting for a permit is cheap. Endpoints in one
+ * bulkhead cannot starve endpoints in another one. If no permit is freed in time, the
+ * exchange is answered with 503.
+ */
+public class BulkheadFilter extends Filter {
+    private final String name;
+    private final Semaphore permits;
+    private final long timeoutSeconds;
+
+    public BulkheadFilter(String name, int maxConcurrency, long timeoutSeconds) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public String description() {
+        return "Limit concurrently handled exchanges in the " + name + " bulkhead";
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (!tryAcquire()) {
+            EndpointUtils.respondWithError(ErrorResponseBuilder.buildFromException(new ServerBusyException(name)), exchange);
+            return;
+        }
+
+        try {
+            chain.doFilter(exchange);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Filter sharing this bulkhead that passes exchanges matching the predicate through without a permit.
+     * Used for long-lived streams that would otherwise hold permits of short requests.
+     */
+    public Filter excluding(Predicate<HttpExchange> predicate) {
+        var bulkhead = this;
+        return new Filter() {
+            @Override
+            public String description() {
+                return bulkhead.description() + " with exclusions";
+            }
+
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                if (predicate.test(exchange))
+                    chain.doFilter(exchange);
+                else
+                    bulkhead.doFilter(exchange, chain);
+            }
+        };
+    }
+
+    private boolean tryAcquire() {
+        try {
+            return permits.tryAcquire(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -2,9 +2,14 @@ package digital.slovensko.autogram.ui;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
 
 import digital.slovensko.autogram.core.Autogram;
 import digital.slovensko.autogram.core.Batch;
@@ -13,16 +18,20 @@ import digital.slovensko.autogram.core.ResponderInBatch;
 import digital.slovensko.autogram.core.SigningJob;
 import digital.slovensko.autogram.core.TargetPath;
 import digital.slovensko.autogram.core.errors.AutogramException;
+import digital.slovensko.autogram.core.errors.UnrecognizedException;
 import digital.slovensko.autogram.util.Logging;
 import eu.europa.esig.dss.enumerations.SignatureLevel;
 import eu.europa.esig.dss.spi.x509.tsp.TSPSource;
 
+import static digital.slovensko.autogram.core.Configuration.getProperty;
+
 public class BatchGuiFileResponder extends BatchResponder {
     private final Autogram autogram;
     private final List<File> list;
-    private final Map<File, File> targetFiles = new HashMap<>();
-    private final Map<File, AutogramException> errors = new HashMap<>();
+    private final Map<File, File> targetFiles = Collections.synchronizedMap(new HashMap<>());
+    private final Map<File, AutogramException> errors = Collections.synchronizedMap(new HashMap<>());
     private boolean uiNotifiedOnAllFilesSigned = false;
+    private volatile boolean stopped = false;
     private final TargetPath targetPath;
     private final boolean checkPDFACompliance;
     private final SignatureLevel pDFSignatureLevel;
@@ -51,30 +60,85 @@ public class BatchGuiFileResponder extends BatchResponder {
         }
 
         for (File file : list) {
+            targetFiles.put(file, null);
+            errors.put(file, null);
+        }
+
+        // jobs are built in parallel, building runs a full validation of the document and may download eForm
+        // resources, and each job is signed as soon as it is built
+        var threads = Integer.parseInt(getProperty("batch.pipeline.threads"));
+        var executor = Executors.newFixedThreadPool(threads, Thread.ofPlatform().daemon().name("autogram-batch-intake-", 0).factory());
+        try {
+            var builder = new ExecutorCompletionService<SigningJob>(executor);
+            var files = list.iterator();
+            var building = 0;
+            for (; building < 2 * threads && files.hasNext(); building++)
+                submitBuild(builder, files.next(), batch);
+
+            while (building > 0 && !stopped) {
+                var job = builder.take().get();
+                building--;
+                if (files.hasNext()) {
+                    submitBuild(builder, files.next(), batch);
+                    building++;
+                }
+
+                if (job != null)
+                    sign(job, batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            stop(new UnrecognizedException(e.getCause()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void submitBuild(CompletionService<SigningJob> builder, File file, Batch batch) {
+        builder.submit(() -> {
+            var responder = new ResponderInBatch(new SaveFileFromBatchResponder(file, targetPath, (File targetFile) -> {
+                targetFiles.put(file, targetFile);
+                Logging.log(batch.getProcessedDocumentsCount() + " / " + batch.getTotalNumberOfDocuments() + " signed " + file.toString());
+                onAllFilesSigned(batch);
+            }, (AutogramException error) -> {
+                Logging.log("Signing failed " + file.toString() + " all:" + batch.isAllProcessed());
+                errors.put(file, error);
+                onAllFilesSigned(batch);
+            }), batch);
+
             try {
-                targetFiles.put(file, null);
-                errors.put(file, null);
-                var responder = new ResponderInBatch(new SaveFileFromBatchResponder(file, targetPath, (File targetFile) -> {
-                    targetFiles.put(file, targetFile);
-                    Logging.log(batch.getProcessedDocumentsCount() + " / " + batch.getTotalNumberOfDocuments() + " signed " + file.toString());
-                    onAllFilesSigned(batch);
-                }, (AutogramException error) -> {
-                    Logging.log("Signing failed " + file.toString() + " all:" + batch.isAllProcessed());
-                    errors.put(file, error);
-                    onAllFilesSigned(batch);
-                }), batch);
-
-                var job = SigningJob.buildFromFile(file, responder, checkPDFACompliance, pDFSignatureLevel, isEn319132, tspSource, plainXmlEnabled);
-                autogram.batchSign(job, batch.getBatchId());
+                return SigningJob.buildFromFile(file, responder, checkPDFACompliance, pDFSignatureLevel, isEn319132, tspSource, plainXmlEnabled);
             } catch (AutogramException e) {
-                autogram.onSigningFailed(e);
-
-                break;
+                // the file cannot be signed, the rest of the batch goes on
+                responder.onDocumentSignFailed(e);
+            } catch (Exception e) {
+                responder.onDocumentSignFailed(new UnrecognizedException(e));
             }
+            return null;
+        });
+    }
+
+    private void sign(SigningJob job, Batch batch) {
+        try {
+            autogram.batchSignAsync(job, batch.getBatchId()).exceptionally(e -> {
+                stop(e.getCause() instanceof AutogramException cause ? cause : new UnrecognizedException(e));
+                return null;
+            });
+        } catch (AutogramException e) {
+            stop(e);
         }
     }
 
-    private void onAllFilesSigned(Batch batch) { // synchronized
+    private synchronized void stop(AutogramException e) {
+        if (stopped)
+            return;
+
+        stopped = true;
+        autogram.onSigningFailed(e);
+    }
+
+    private synchronized void onAllFilesSigned(Batch batch) {
         Logging.log("onAllFilesSigned " + batch.isAllProcessed() + " " + uiNotifiedOnAllFilesSigned);
         if (batch.isAllProcessed() && !uiNotifiedOnAllFilesSigned) {
             uiNotifiedOnAllFilesSigned = true;
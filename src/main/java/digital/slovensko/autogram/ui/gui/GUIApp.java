@@ -4,6 +4,7 @@ import digital.slovensko.autogram.core.Autogram;
 import digital.slovensko.autogram.core.LaunchParameters;
 import digital.slovensko.autogram.core.UserSettings;
 import digital.slovensko.autogram.core.errors.PortIsUsedException;
+import digital.slovensko.autogram.core.errors.ServerNotCreatedException;
 import digital.slovensko.autogram.core.errors.UnrecognizedException;
 import digital.slovensko.autogram.server.AutogramServer;
 import digital.slovensko.autogram.ui.SupportedLanguage;
@@ -12,13 +13,14 @@ import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.nio.file.Path;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 public class GUIApp extends Application {
     private final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(1);
-    private final ExecutorService cachedExecutorService = Executors.newFixedThreadPool(8);
+    private final ExecutorService tlExecutorService = Executors.newFixedThreadPool(4);
 
     @Override
     public void start(Stage windowStage) throws Exception {
@@ -34,7 +36,7 @@ public class GUIApp extends Application {
             autogram = new Autogram(new GUI(getHostServices(), userSettings), userSettings);
             var finalAutogram = autogram;
             autogram.checkForUpdate();
-            autogram.initializeSignatureValidator(scheduledExecutorService, cachedExecutorService, userSettings.getTrustedList());
+            autogram.initializeSignatureValidator(scheduledExecutorService, tlExecutorService, userSettings.getTrustedList());
 
             final var params = LaunchParameters.fromParameters(getParameters());
             final var controller = new MainMenuController(autogram, userSettings);
@@ -45,7 +47,9 @@ public class GUIApp extends Application {
             if (userSettings.isServerEnabled()) {
                 try {
                     var languageResources = SupportedLanguage.ENGLISH.loadResources();
-                    server = new AutogramServer(autogram, params.getHost(), params.getPort(), params.isProtocolHttps(), cachedExecutorService, languageResources);
+                    var unixSocket = params.getUnixSocket() == null ? null : Path.of(params.getUnixSocket());
+                    server = new AutogramServer(autogram, params.getHost(), params.getPort(), params.isProtocolHttps(), unixSocket,
+                            params.getSigningDirectories(), languageResources);
                     server.start();
 
                     var thread = new Thread(server::stop);
@@ -55,7 +59,7 @@ public class GUIApp extends Application {
                         Platform.exit();
                     });
 
-                } catch (PortIsUsedException e) {
+                } catch (PortIsUsedException | ServerNotCreatedException e) {
                     Platform.runLater(() -> {
                         GUIUtils.showError(e, "error.restrictedMode.btn", true, true);
                     });
@@ -100,7 +104,7 @@ public class GUIApp extends Application {
         if (!scheduledExecutorService.awaitTermination(2, java.util.concurrent.TimeUnit.SECONDS))
             scheduledExecutorService.shutdownNow();
 
-        if (!cachedExecutorService.awaitTermination(2, java.util.concurrent.TimeUnit.SECONDS))
-            cachedExecutorService.shutdownNow();
+        if (!tlExecutorService.awaitTermination(2, java.util.concurrent.TimeUnit.SECONDS))
+            tlExecutorService.shutdownNow();
     }
 }
@@ -0,0 +1,136 @@
+package digital.slovensko.autogram.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide latency histograms, counters and gauges exported in the Prometheus text format.
+ *
+ * Stages of signing are timed with {@code try (var _ = Metrics.time("stage")) { ... }}. Recording is
+ * lock-free, so it can be left on in production.
+ */
+public class Metrics {
+    private static final double[] BUCKETS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300};
+
+    private static final Map<String, Histogram> stages = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongAdder> cacheRequests = new ConcurrentSkipListMap<>();
+    private static final Map<String, Supplier<Number>> gauges = new ConcurrentSkipListMap<>();
+    private static final Map<String, String> gaugeHelp = new ConcurrentHashMap<>();
+
+    /**
+     * The duration is recorded into the trace current on the calling thread as well.
+     */
+    public static Timer time(String stage) {
+        return new Timer(stage, stages.computeIfAbsent(stage, _ -> new Histogram()), Trace.current());
+    }
+
+    public static void cacheHit(String cache) {
+        cacheRequests.computeIfAbsent(series(cache, "hit"), _ -> new LongAdder()).increment();
+    }
+
+    public static void cacheMiss(String cache) {
+        cacheRequests.computeIfAbsent(series(cache, "miss"), _ -> new LongAdder()).increment();
+    }
+
+    /**
+     * Register a gauge read when metrics are exported. A gauge registered under the same name and labels
+     * replaces the previous one.
+     *
+     * @param labels Prometheus labels without braces, e.g. {@code bulkhead="signing"}, or an empty string
+     */
+    public static void registerGauge(String name, String help, String labels, Supplier<Number> value) {
+        gaugeHelp.put(name, help);
+        gauges.put(labels.isEmpty() ? name : name + "{" + labels + "}", value);
+    }
+
+    public static String export() {
+        var out = new StringBuilder();
+
+        out.append("# HELP autogram_stage_duration_seconds Duration of signing stages.\n");
+        out.append("# TYPE autogram_stage_duration_seconds histogram\n");
+        stages.forEach((stage, histogram) -> histogram.export(out, stage));
+
+        out.append("# HELP autogram_cache_requests_total Lookups of cached values by result.\n");
+        out.append("# TYPE autogram_cache_requests_total counter\n");
+        cacheRequests.forEach((series, count) ->
+                out.append("autogram_cache_requests_total{").append(series).append("} ").append(count.sum()).append('\n'));
+
+        String previous = null;
+        for (var gauge : gauges.entrySet()) {
+            var name = gauge.getKey().split("\\{")[0];
+            if (!name.equals(previous)) {
+                out.append("# HELP ").append(name).append(' ').append(gaugeHelp.get(name)).append('\n');
+                out.append("# TYPE ").append(name).append(" gauge\n");
+                previous = name;
+            }
+            out.append(gauge.getKey()).append(' ').append(gauge.getValue().get()).append('\n');
+        }
+
+        return out.toString();
+    }
+
+    private static String series(String cache, String result) {
+        return "cache=\"" + cache + "\",result=\"" + result + "\"";
+    }
+
+    public static class Timer implements AutoCloseable {
+        private final String stage;
+        private final Histogram histogram;
+        private final Trace trace;
+        private final long start = System.nanoTime();
+
+        private Timer(String stage, Histogram histogram, Trace trace) {
+            this.stage = stage;
+            this.histogram = histogram;
+            this.trace = trace;
+        }
+
+        @Override
+        public void close() {
+            var duration = System.nanoTime() - start;
+            histogram.observe(duration / 1e9);
+            if (trace != null)
+                trace.record(stage, duration);
+        }
+    }
+
+    private static class Histogram {
+        // the last bucket counts observations over the largest bound
+        private final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+        private final LongAdder sumNanos = new LongAdder();
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++)
+                buckets[i] = new LongAdder();
+        }
+
+        void observe(double seconds) {
+            // buckets are not cumulative here, they are summed up on export
+            var i = 0;
+            while (i < BUCKETS.length && seconds > BUCKETS[i])
+                i++;
+
+            buckets[i].increment();
+            sumNanos.add((long) (seconds * 1e9));
+        }
+
+        void export(StringBuilder out, String stage) {
+            var cumulative = 0L;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                cumulative += buckets[i].sum();
+                out.append("autogram_stage_duration_seconds_bucket{stage=\"").append(stage).append("\",le=\"")
+                        .append(BUCKETS[i]).append("\"} ").append(cumulative).append('\n');
+            }
+            cumulative += buckets[BUCKETS.length].sum();
+            out.append("autogram_stage_duration_seconds_bucket{stage=\"").append(stage).append("\",le=\"+Inf\"} ")
+                    .append(cumulative).append('\n');
+            out.append("autogram_stage_duration_seconds_sum{stage=\"").append(stage).append("\"} ")
+                    .append(sumNanos.sum() / 1e9).append('\n');
+            out.append("autogram_stage_duration_seconds_count{stage=\"").append(stage).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+    }
+}
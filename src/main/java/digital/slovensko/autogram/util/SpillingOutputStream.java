@@ -0,0 +1,173 @@
+package digital.slovensko.autogram.util;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.enumerations.MimeType;
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.FileDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+
+/**
+ * Output stream that keeps written bytes in memory until the threshold is reached and then moves them
+ * to a temporary file. After closing, the content can be read back as a DSSDocument any number of times
+ * without copying, documents read back share computed digests. Call {@link #discard()} to delete the temporary file when the content is no longer needed.
+ * Files of a process that was killed before discarding them are deleted by {@link #deleteLeftovers()} on the next start.
+ */
+public class SpillingOutputStream extends OutputStream {
+    private static final String PREFIX = "autogram-";
+    private static final String SUFFIX = ".tmp";
+    private static final Duration LEFTOVER_AGE = Duration.ofDays(1);
+
+    private final long threshold;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private byte[] bytes;
+    private Path file;
+    private OutputStream fileStream;
+    private long size = 0;
+    private boolean closed = false;
+    private final EnumMap<DigestAlgorithm, byte[]> digests = new EnumMap<>(DigestAlgorithm.class);
+
+    public SpillingOutputStream(long threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("Stream is closed");
+
+        if (file == null && size + len > threshold)
+            spill();
+
+        if (file == null)
+            memory.write(b, off, len);
+        else
+            fileStream.write(b, off, len);
+
+        size += len;
+    }
+
+    private void spill() throws IOException {
+        file = Files.createTempFile(PREFIX, SUFFIX);
+        fileStream = new BufferedOutputStream(Files.newOutputStream(file));
+        memory.writeTo(fileStream);
+        memory = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+        if (file == null) {
+            bytes = memory.toByteArray();
+            memory = null;
+        } else {
+            fileStream.close();
+        }
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Each call returns a new document backed by the same content, so callers can change its name or
+     * MIME type independently.
+     */
+    public DSSDocument toDocument(String name, MimeType mimeType) {
+        if (!closed)
+            throw new IllegalStateException("Stream has to be closed before reading the content");
+
+        if (file == null)
+            return new SharedDigestInMemoryDocument(bytes, name, mimeType, digests);
+
+        return new SharedDigestFileDocument(file.toFile(), name, mimeType, digests);
+    }
+
+    public void discard() {
+        bytes = null;
+        if (file == null)
+            return;
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Logging.log("Failed to delete temporary file " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Delete temporary files left behind by processes that did not discard them. Only files untouched for
+     * a day are deleted, the recent ones may belong to another instance that is still running.
+     */
+    public static void deleteLeftovers() {
+        deleteLeftovers(Path.of(System.getProperty("java.io.tmpdir")), Instant.now().minus(LEFTOVER_AGE));
+    }
+
+    static void deleteLeftovers(Path directory, Instant olderThan) {
+        try (var files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (var file : files) {
+                try {
+                    if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toInstant().isBefore(olderThan))
+                        Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    Logging.log("Failed to delete temporary file " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            Logging.log("Failed to list temporary files in " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private static class SharedDigestInMemoryDocument extends InMemoryDocument {
+        SharedDigestInMemoryDocument(byte[] bytes, String name, MimeType mimeType, EnumMap<DigestAlgorithm, byte[]> digests) {
+            super(bytes, name, mimeType);
+            digestMap = digests;
+        }
+
+        @Override
+        public byte[] getDigestValue(DigestAlgorithm digestAlgorithm) {
+            // the map is shared by all documents read back, which may be used on several threads at once
+            synchronized (digestMap) {
+                return super.getDigestValue(digestAlgorithm);
+            }
+        }
+    }
+
+    private static class SharedDigestFileDocument extends FileDocument {
+        SharedDigestFileDocument(File file, String name, MimeType mimeType, EnumMap<DigestAlgorithm, byte[]> digests) {
+            super(file);
+            setName(name);
+            setMimeType(mimeType);
+            digestMap = digests;
+        }
+
+        @Override
+        public byte[] getDigestValue(DigestAlgorithm digestAlgorithm) {
+            synchronized (digestMap) {
+                return super.getDigestValue(digestAlgorithm);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package digital.slovensko.autogram.util;
+
+import digital.slovensko.autogram.core.Configuration;
+import eu.europa.esig.dss.asic.common.SecureContainerHandlerBuilder;
+import eu.europa.esig.dss.asic.common.ZipUtils;
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.signature.resources.AbstractResourcesHandler;
+import eu.europa.esig.dss.signature.resources.DSSResourcesHandlerBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Documents written by DSS, such as containers, signed PDFs and entries extracted from containers, for the
+ * duration of one piece of work.
+ *
+ * While a scope is bound to the thread, DSS keeps documents in memory up to the threshold and moves larger
+ * ones to temporary files, which are deleted by {@link #discard()}. Without a scope documents stay in memory,
+ * because nobody would delete the files. Consumers reading the documents after the work is done
+ * {@link #keep()} them, the files are deleted once the last of them has called {@link #release()}.
+ */
+public class TemporaryDocuments {
+    private static final ThreadLocal<TemporaryDocuments> current = new ThreadLocal<>();
+    private static final long THRESHOLD = Long.parseLong(Configuration.getProperty("document.spillThreshold"));
+    private static final DSSResourcesHandlerBuilder resourcesHandlerBuilder = SpillingResourcesHandler::new;
+
+    static {
+        // ASiC containers are written and extracted through ZipUtils, installed before any scope is bound
+        ZipUtils.getInstance().setZipContainerHandlerBuilder(
+                new SecureContainerHandlerBuilder().setResourcesHandlerBuilder(resourcesHandlerBuilder));
+    }
+
+    private final List<SpillingOutputStream> streams = new ArrayList<>();
+    private int keepers = 0;
+    private boolean discardPending = false;
+
+    /**
+     * Make this scope current on the calling thread until the binding is closed.
+     */
+    public Binding bind() {
+        var previous = current.get();
+        current.set(this);
+        return () -> current.set(previous);
+    }
+
+    public synchronized void discard() {
+        if (keepers > 0) {
+            discardPending = true;
+            return;
+        }
+
+        delete();
+    }
+
+    /**
+     * Keep the documents after they are discarded, until {@link #release()} is called.
+     */
+    public synchronized void keep() {
+        keepers++;
+    }
+
+    public synchronized void release() {
+        if (--keepers == 0 && discardPending) {
+            discardPending = false;
+            delete();
+        }
+    }
+
+    private void delete() {
+        streams.forEach(SpillingOutputStream::discard);
+        streams.clear();
+    }
+
+    private synchronized void add(SpillingOutputStream stream) {
+        streams.add(stream);
+    }
+
+    /**
+     * Resources handlers for DSS services spilling documents of the current scope above the threshold.
+     */
+    public static DSSResourcesHandlerBuilder getResourcesHandlerBuilder() {
+        return resourcesHandlerBuilder;
+    }
+
+    private static class SpillingResourcesHandler extends AbstractResourcesHandler {
+        private SpillingOutputStream stream;
+
+        @Override
+        protected OutputStream buildOutputStream() {
+            var scope = current.get();
+            stream = new SpillingOutputStream(scope == null ? Long.MAX_VALUE : THRESHOLD);
+            if (scope != null)
+                scope.add(stream);
+
+            return stream;
+        }
+
+        @Override
+        public DSSDocument writeToDSSDocument() throws IOException {
+            close();
+            return stream.toDocument(null, null);
+        }
+    }
+
+    public interface Binding extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,78 @@
+package digital.slovensko.autogram.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Correlation ID and stage durations of one signing request.
+ *
+ * The trace is bound to the thread doing the work, so {@link Metrics#time(String)} can record stages
+ * into it without passing it around. SigningJob keeps its trace and binds it again on the threads
+ * that visualize and sign the document later.
+ */
+public class Trace {
+    private static final ThreadLocal<Trace> current = new ThreadLocal<>();
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final String id;
+    private final List<String> stages = new ArrayList<>();
+
+    private Trace(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Start a trace with the ID requested by the client, or a new one if it is missing or invalid.
+     */
+    public static Trace start(String requestedId) {
+        if (requestedId != null && VALID_ID.matcher(requestedId).matches())
+            return new Trace(requestedId);
+
+        return new Trace(UUID.randomUUID().toString());
+    }
+
+    public static Trace current() {
+        return current.get();
+    }
+
+    public static Trace currentOrStart() {
+        var trace = current.get();
+        return trace != null ? trace : start(null);
+    }
+
+    /**
+     * Make this trace current on the calling thread until the binding is closed.
+     */
+    public Binding bind() {
+        var previous = current.get();
+        current.set(this);
+        return () -> current.set(previous);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized void record(String stage, long nanos) {
+        stages.add(String.format(Locale.ROOT, "%s;dur=%.1f", stage, nanos / 1e6));
+    }
+
+    /**
+     * Stages recorded so far in the Server-Timing header format, durations are in milliseconds.
+     */
+    public synchronized String toServerTiming() {
+        return String.join(", ", stages);
+    }
+
+    public void log(String outcome) {
+        Logging.log("Request " + id + " " + outcome + ": " + toServerTiming());
+    }
+
+    public interface Binding extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
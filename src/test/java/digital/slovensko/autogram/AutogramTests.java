@@ -6,31 +6,53 @@ import digital.slovensko.autogram.core.*;
 import digital.slovensko.autogram.core.errors.AutogramException;
 import digital.slovensko.autogram.core.errors.CertificatesReadingConsentRejectedException;
 import digital.slovensko.autogram.core.errors.NoDriversDetectedException;
+import digital.slovensko.autogram.core.errors.PINIncorrectException;
 import digital.slovensko.autogram.core.errors.UnknownEformException;
 import digital.slovensko.autogram.core.visualization.Visualization;
 import digital.slovensko.autogram.drivers.TokenDriver;
 import digital.slovensko.autogram.server.CertificatesResponder;
 import digital.slovensko.autogram.server.dto.CertificatesResponse;
+import digital.slovensko.autogram.server.dto.Document;
+import digital.slovensko.autogram.server.dto.ServerSigningParameters;
+import digital.slovensko.autogram.server.dto.SignRequestBody;
 import digital.slovensko.autogram.ui.BatchUiResult;
 import digital.slovensko.autogram.ui.UI;
 import digital.slovensko.autogram.ui.gui.IgnorableException;
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.enumerations.MimeTypeEnum;
 import eu.europa.esig.dss.enumerations.SignatureLevel;
+import eu.europa.esig.dss.enumerations.SignaturePackaging;
 import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.spi.DSSUtils;
+import eu.europa.esig.dss.spi.x509.tsp.KeyEntityTSPSource;
+import eu.europa.esig.dss.spi.x509.tsp.TSPSource;
 import eu.europa.esig.dss.token.AbstractKeyStoreTokenConnection;
 import eu.europa.esig.dss.token.DSSPrivateKeyEntry;
 import eu.europa.esig.dss.token.Pkcs12SignatureToken;
 
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.file.Path;
+import java.security.KeyPairGenerator;
 import java.security.KeyStore;
+import java.util.Base64;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.Timer;
@@ -117,6 +139,97 @@ class AutogramTests {
         verify(responder).onDocumentSigned(any());
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = { "XAdES_BASELINE_B", "CAdES_BASELINE_B" })
+    void testSignDigestOnlyHappyScenario(String level) {
+        var newUI = new FakeUI();
+        var settings = new TestSettings();
+        var autogram = new Autogram(newUI, settings);
+
+        var digest = Base64.getEncoder().encodeToString(DSSUtils.digest(DigestAlgorithm.SHA256, "archive".getBytes()));
+        var parameters = new ServerSigningParameters(ServerSigningParameters.LocalSignatureLevel.valueOf(level), null,
+                null, null, SignaturePackaging.DETACHED, null, null, null, null, null, null, null, null, false, null,
+                false, false, null, null, null, null, null, null);
+        var body = new SignRequestBody(new Document("archive.zip", digest, "SHA256"), parameters, null);
+        body.validateDocument();
+        body.validateSigningParameters();
+        var responder = mock(Responder.class);
+
+        autogram.pickSigningKeyAndThen(
+                key -> autogram.sign(SigningJob.buildFromRequest(body.getDocument(), body.getParameters(null, false), responder), key));
+
+        verify(responder).onDocumentSigned(any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "XAdES_BASELINE_T", "CAdES_BASELINE_T" })
+    void testSignDigestOnlyTimestampedScenario(String level) throws Exception {
+        var tspSource = createTspSource();
+        var autogram = new Autogram(new FakeUI(), new TestSettings());
+
+        var digest = Base64.getEncoder().encodeToString(DSSUtils.digest(DigestAlgorithm.SHA256, "archive".getBytes()));
+        var parameters = new ServerSigningParameters(ServerSigningParameters.LocalSignatureLevel.valueOf(level), null,
+                null, null, SignaturePackaging.DETACHED, null, null, null, null, null, null, null, null, false, null,
+                false, false, null, null, null, null, null, null);
+        var body = new SignRequestBody(new Document("archive.zip", digest, "SHA256"), parameters, null);
+        body.validateDocument();
+        body.validateSigningParameters();
+        var responder = mock(Responder.class);
+
+        autogram.pickSigningKeyAndThen(
+                key -> autogram.sign(SigningJob.buildFromRequest(body.getDocument(), body.getParameters(tspSource, false), responder), key));
+
+        verify(responder).onDocumentSigned(any());
+        verify(responder, never()).onDocumentSignFailed(any());
+    }
+
+    private static TSPSource createTspSource() throws Exception {
+        var keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        var name = new X500Name("CN=Test TSA");
+        var now = System.currentTimeMillis();
+        var builder = new JcaX509v3CertificateBuilder(name, BigInteger.ONE, new Date(now - 60_000),
+                new Date(now + 3_600_000), name, keyPair.getPublic());
+        builder.addExtension(Extension.extendedKeyUsage, true, new ExtendedKeyUsage(KeyPurposeId.id_kp_timeStamping));
+        var certificate = new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+
+        var tspSource = new KeyEntityTSPSource(keyPair.getPrivate(), certificate, List.of(certificate));
+        tspSource.setTsaPolicy("1.2.3.4");
+        return tspSource;
+    }
+
+    @Test
+    void testBatchErrorEndingBatchIsRespondedOnce() throws IOException {
+        var keystore = Objects.requireNonNull(this.getClass().getResource("test.keystore")).getFile();
+        var entry = new Pkcs12SignatureToken(keystore, new KeyStore.PasswordProtection("".toCharArray())).getKeys().getFirst();
+        var key = mock(SigningKey.class);
+        when(key.getCertificate()).thenReturn(entry.getCertificate());
+        when(key.getCertificateChain()).thenReturn(entry.getCertificateChain());
+        when(key.sign(any(), any())).thenThrow(new PINIncorrectException());
+
+        var batches = new Batch[1];
+        var autogram = new Autogram(new FakeUI() {
+            @Override
+            public void startBatch(Batch batch, Autogram autogram, BatchStartCallback callback) {
+                batch.start(key);
+                batches[0] = batch;
+            }
+        }, new TestSettings());
+        autogram.batchStart(2, mock(BatchResponder.class));
+
+        var document = new InMemoryDocument("hello".getBytes(), "hello.txt", MimeTypeEnum.TEXT);
+        var parameters = SigningParameters.buildForASiCWithCAdES(document, false, false, null, false);
+        var responder = mock(Responder.class);
+        try {
+            // the error ends the batch, it is answered by the responder and not thrown to be answered again
+            Assertions.assertDoesNotThrow(() -> autogram.batchSign(SigningJob.buildFromRequest(document, parameters, responder), batches[0].getBatchId()));
+        } finally {
+            autogram.shutdown();
+        }
+
+        verify(responder, times(1)).onDocumentSignFailed(any(PINIncorrectException.class));
+    }
+
     @BeforeAll
     public static void setupTempTestDirectory() {
         tempTestsPath.toFile().mkdirs();
@@ -388,7 +501,7 @@ class AutogramTests {
 
         @Override
         public void onPickSigningKeyFailed(AutogramException ae) {
-            throw new RuntimeException();
+            throw new RuntimeException(ae);
         }
 
         @Override
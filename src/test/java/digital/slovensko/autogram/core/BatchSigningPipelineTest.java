@@ -0,0 +1,156 @@
+package digital.slovensko.autogram.core;
+
+import digital.slovensko.autogram.util.Trace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchSigningPipelineTest {
+    private final BatchSigningPipeline pipeline = new BatchSigningPipeline(4, 4);
+
+    @AfterEach
+    void shutdown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void testTokenSignsOneDocumentAtATime() {
+        var signing = new AtomicInteger();
+        var maxSigning = new AtomicInteger();
+        var completed = Collections.synchronizedList(new ArrayList<Integer>());
+
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 20; i++) {
+            var document = i;
+            futures.add(pipeline.submit(Trace.start(null), () -> document, prepared -> {
+                maxSigning.accumulateAndGet(signing.incrementAndGet(), Math::max);
+                sleep(2);
+                signing.decrementAndGet();
+                return prepared * 10;
+            }, (prepared, signatureValue) -> completed.add(signatureValue)));
+        }
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        assertEquals(1, maxSigning.get());
+        assertEquals(20, completed.size());
+        for (int i = 0; i < 20; i++)
+            assertTrue(completed.contains(i * 10));
+    }
+
+    @Test
+    void testDocumentsArePreparedWhileTokenSigns() throws InterruptedException {
+        var tokenBusy = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var prepared = new CountDownLatch(3);
+
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(pipeline.submit(Trace.start(null), () -> {
+                prepared.countDown();
+                return null;
+            }, p -> {
+                tokenBusy.countDown();
+                await(release);
+                return null;
+            }, (p, v) -> {}));
+        }
+
+        assertTrue(tokenBusy.await(5, TimeUnit.SECONDS));
+        assertTrue(prepared.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    @Test
+    void testFailedStageFailsDocumentAndSkipsRest() {
+        var failure = new IllegalStateException("token removed");
+        var completedStages = new AtomicInteger();
+
+        var future = pipeline.submit(Trace.start(null), () -> "prepared", prepared -> {
+            throw failure;
+        }, (prepared, signatureValue) -> completedStages.incrementAndGet());
+
+        var e = assertThrows(CompletionException.class, future::join);
+        assertSame(failure, e.getCause());
+        assertEquals(0, completedStages.get());
+    }
+
+    @Test
+    void testStagesRunWithJobTrace() {
+        var trace = Trace.start("batch-job-1");
+        var seen = Collections.synchronizedList(new ArrayList<String>());
+
+        pipeline.submit(trace, () -> seen.add(Trace.current().getId()), prepared -> seen.add(Trace.current().getId()),
+                (prepared, signatureValue) -> seen.add(Trace.current().getId())).join();
+
+        assertEquals(List.of("batch-job-1", "batch-job-1", "batch-job-1"), seen);
+    }
+
+    @Test
+    void testSubmitAfterShutdownFails() {
+        pipeline.shutdown();
+
+        var future = pipeline.submit(Trace.start(null), () -> null, prepared -> null, (prepared, signatureValue) -> {});
+
+        assertInstanceOf(RejectedExecutionException.class,
+                assertThrows(CompletionException.class, future::join).getCause());
+    }
+
+    @Test
+    void testShutdownFailsQueuedDocuments() throws InterruptedException {
+        var tokenBusy = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(pipeline.submit(Trace.start(null), () -> null, prepared -> {
+                tokenBusy.countDown();
+                await(release);
+                return null;
+            }, (prepared, signatureValue) -> {}));
+        }
+
+        // one document is signed by the token, the rest wait in the queue of the token stage
+        assertTrue(tokenBusy.await(5, TimeUnit.SECONDS));
+        pipeline.shutdown();
+        release.countDown();
+
+        for (var future : futures) {
+            var e = assertThrows(CompletionException.class, () -> future.orTimeout(5, TimeUnit.SECONDS).join());
+            assertFalse(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package digital.slovensko.autogram.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class BatchTest {
+    private static final int DOCUMENTS = 10_000;
+
+    @Test
+    void testConcurrentJobsAreCountedExactly() {
+        var batch = new Batch(DOCUMENTS);
+        batch.start(null);
+        var rejected = new AtomicInteger();
+
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            // more requests than declared, the extra ones have to be refused
+            for (int i = 0; i < DOCUMENTS + 100; i++) {
+                var index = i;
+                executor.execute(() -> {
+                    try {
+                        batch.addJob(batch.getBatchId());
+                    } catch (IllegalAccessError e) {
+                        rejected.incrementAndGet();
+                        return;
+                    }
+
+                    if (index % 2 == 0)
+                        batch.onJobSuccess();
+                    else
+                        batch.onJobFailure();
+                });
+            }
+        }
+
+        assertEquals(100, rejected.get());
+        assertEquals(DOCUMENTS, batch.getProcessedDocumentsCount());
+        assertTrue(batch.isAllProcessed());
+    }
+}
@@ -0,0 +1,95 @@
+package digital.slovensko.autogram.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.model.TimestampBinary;
+import eu.europa.esig.dss.spi.exception.DSSExternalResourceException;
+import eu.europa.esig.dss.spi.x509.tsp.TSPSource;
+
+class HedgedTSPSourceTest {
+    private static final TimestampBinary FIRST = new TimestampBinary(new byte[] { 1 });
+    private static final TimestampBinary SECOND = new TimestampBinary(new byte[] { 2 });
+
+    @Test
+    void testSlowTsaIsHedged() {
+        var source = createSource(answerAfter(FIRST, 10_000), answerAfter(SECOND, 0));
+
+        var start = System.currentTimeMillis();
+        assertSame(SECOND, source.getTimeStampResponse(DigestAlgorithm.SHA256, new byte[32]));
+        assertTrue(System.currentTimeMillis() - start < 9_000);
+    }
+
+    @Test
+    void testFailedTsaIsFollowedByNext() {
+        var source = createSource(fail(), answerAfter(SECOND, 0));
+
+        assertSame(SECOND, source.getTimeStampResponse(DigestAlgorithm.SHA256, new byte[32]));
+    }
+
+    @Test
+    void testFailureOfAllTsasKeepsCause() {
+        var source = createSource(fail(), fail());
+
+        var e = assertThrows(DSSException.class, () -> source.getTimeStampResponse(DigestAlgorithm.SHA256, new byte[32]));
+        assertTrue(e.getCause() instanceof DSSExternalResourceException);
+    }
+
+    @Test
+    void testFailingTsaIsAskedLast() {
+        var failingCalls = new AtomicInteger();
+        TSPSource failing = (digestAlgorithm, digest) -> {
+            failingCalls.incrementAndGet();
+            throw new DSSExternalResourceException("refused");
+        };
+        var source = createSource(failing, answerAfter(SECOND, 0));
+
+        for (int i = 0; i < 5; i++)
+            assertSame(SECOND, source.getTimeStampResponse(DigestAlgorithm.SHA256, new byte[32]));
+
+        assertEquals(3, failingCalls.get());
+    }
+
+    @Test
+    void testHedgeDelayFollowsLatencies() {
+        var tsa = new HedgedTSPSource.Tsa("http://tsa.example.com", answerAfter(FIRST, 0));
+        for (int i = 1; i <= 100; i++)
+            tsa.onSuccess(i * 10L);
+
+        // last 64 samples are 370..1000 ms
+        assertTrue(tsa.getHedgeDelayMillis() >= 950 && tsa.getHedgeDelayMillis() <= 1000);
+    }
+
+    private static HedgedTSPSource createSource(TSPSource first, TSPSource second) {
+        var sources = new LinkedHashMap<String, TSPSource>();
+        sources.put("http://first.example.com", first);
+        sources.put("http://second.example.com", second);
+        return new HedgedTSPSource(sources);
+    }
+
+    private static TSPSource answerAfter(TimestampBinary response, long millis) {
+        return (digestAlgorithm, digest) -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                throw new DSSException(e);
+            }
+            return response;
+        };
+    }
+
+    private static TSPSource fail() {
+        return (digestAlgorithm, digest) -> {
+            throw new DSSExternalResourceException("refused");
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package digital.slovensko.autogram.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import javafx.application.Application;
+
+class LaunchParametersTest {
+    @Test
+    void testSocketIsTakenFromCommandLine() {
+        var params = LaunchParameters.fromParameters(parameters(Map.of("socket", "/run/user/1000/autogram.sock")));
+
+        assertEquals("/run/user/1000/autogram.sock", params.getUnixSocket());
+    }
+
+    @Test
+    void testSocketIsIgnoredInUrl() {
+        var params = LaunchParameters.fromParameters(parameters(Map.of("url", "autogram://go?socket=/home/user/.bashrc")));
+
+        assertNull(params.getUnixSocket());
+    }
+
+    @Test
+    void testSigningDirectoriesAreTakenFromCommandLine() {
+        var params = LaunchParameters.fromParameters(parameters(Map.of("signingDirectories",
+                String.join(File.pathSeparator, "/home/user/Scans", "/home/user/Invoices"))));
+
+        assertEquals(List.of(Path.of("/home/user/Scans"), Path.of("/home/user/Invoices")), params.getSigningDirectories());
+    }
+
+    @Test
+    void testSigningDirectoriesAreIgnoredInUrl() {
+        var params = LaunchParameters.fromParameters(parameters(Map.of("url", "autogram://go?signingDirectories=/home/user")));
+
+        assertEquals(List.of(), params.getSigningDirectories());
+    }
+
+    private static Application.Parameters parameters(Map<String, String> named) {
+        return new Application.Parameters() {
+            @Override
+            public List<String> getRaw() {
+                return List.of();
+            }
+
+            @Override
+            public List<String> getUnnamed() {
+                return List.of();
+            }
+
+            @Override
+            public Map<String, String> getNamed() {
+                return named;
+            }
+        };
+    }
+}
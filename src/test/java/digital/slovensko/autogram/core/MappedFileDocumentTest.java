@@ -0,0 +1,89 @@
+package digital.slovensko.autogram.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.FileDocument;
+
+class MappedFileDocumentTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testStreamsReadWholeFileIndependently() throws IOException {
+        var content = new byte[100_000];
+        new Random(7).nextBytes(content);
+        var file = Files.write(directory.resolve("document.pdf"), content);
+        var document = new MappedFileDocument(file.toFile());
+
+        try (var first = document.openStream(); var second = document.openStream()) {
+            assertEquals(10, first.skip(10));
+            assertEquals(content[10] & 0xFF, first.read());
+            assertArrayEquals(content, second.readAllBytes());
+            assertEquals(content.length - 11, first.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void testDigestMatchesFileDocument() throws IOException {
+        var file = Files.writeString(directory.resolve("document.txt"), "Autogram").toFile();
+
+        assertArrayEquals(new FileDocument(file).getDigestValue(DigestAlgorithm.SHA256),
+                new MappedFileDocument(file).getDigestValue(DigestAlgorithm.SHA256));
+    }
+
+    @Test
+    void testReleasedDocumentReadsFile() throws IOException {
+        var content = new byte[100_000];
+        new Random(7).nextBytes(content);
+        var file = Files.write(directory.resolve("document.pdf"), content);
+        var document = new MappedFileDocument(file.toFile());
+
+        try (var stream = document.openStream()) {
+            document.release();
+            assertThrows(IOException.class, stream::read);
+        }
+        try (var stream = document.openStream()) {
+            assertArrayEquals(content, stream.readAllBytes());
+        }
+        // the file is no longer held by the document
+        Files.delete(file);
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testTruncatedFileFailsRead() throws IOException {
+        var file = Files.write(directory.resolve("document.pdf"), new byte[1024 * 1024]);
+        var document = new MappedFileDocument(file.toFile());
+
+        try (var stream = document.openStream(); var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+            assertThrows(IOException.class, stream::readAllBytes);
+        } finally {
+            document.release();
+        }
+    }
+
+    @Test
+    void testEmptyFile() throws IOException {
+        var file = Files.createFile(directory.resolve("empty.txt")).toFile();
+
+        try (var stream = new MappedFileDocument(file).openStream()) {
+            assertEquals(-1, stream.read());
+        }
+    }
+}
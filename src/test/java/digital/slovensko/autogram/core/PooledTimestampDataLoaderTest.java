@@ -0,0 +1,61 @@
+package digital.slovensko.autogram.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+class PooledTimestampDataLoaderTest {
+
+    @Test
+    void testClientIsReusedUntilClosed() throws Exception {
+        var url = "http://tsa.example.com";
+
+        try (var loader = new PooledTimestampDataLoader(2)) {
+            var client = loader.getHttpClient(url);
+            assertSame(client, loader.getHttpClient(url));
+            assertNotSame(client, loader.getHttpClient("http://other.example.com"));
+
+            loader.close();
+            try (var afterClose = loader.getHttpClient(url)) {
+                assertNotSame(client, afterClose);
+            }
+        }
+    }
+
+    @Test
+    void testClientIsClosedOnceRequestInProgressFinishes() throws Exception {
+        var server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, 2);
+            try (var body = exchange.getResponseBody()) {
+                body.write("ok".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+        var url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+        try {
+            var loader = new PooledTimestampDataLoader(2);
+            var client = loader.getHttpClient(url);
+
+            // the TSA servers are replaced while a job is timestamping
+            loader.close();
+            assertArrayEquals("ok".getBytes(StandardCharsets.UTF_8), client.execute(new HttpGet(url), response -> EntityUtils.toByteArray(response.getEntity())));
+
+            loader.closeQuietly(null, client);
+            assertThrows(IllegalStateException.class, () -> client.execute(new HttpGet(url), response -> null));
+        } finally {
+            server.stop(0);
+        }
+    }
+}
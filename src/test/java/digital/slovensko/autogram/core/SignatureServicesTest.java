@@ -0,0 +1,44 @@
+package digital.slovensko.autogram.core;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import eu.europa.esig.dss.service.tsp.OnlineTSPSource;
+
+class SignatureServicesTest {
+    @Test
+    void testServicesAreShared() {
+        assertSame(SignatureServices.getXAdESService(null), SignatureServices.getXAdESService(null));
+        assertSame(SignatureServices.getCAdESService(null), SignatureServices.getCAdESService(null));
+        assertSame(SignatureServices.getPAdESService(null), SignatureServices.getPAdESService(null));
+        assertSame(SignatureServices.getASiCWithXAdESService(null), SignatureServices.getASiCWithXAdESService(null));
+        assertSame(SignatureServices.getASiCWithCAdESService(null), SignatureServices.getASiCWithCAdESService(null));
+    }
+
+    @Test
+    void testServicesAreKeptPerTspSource() {
+        var tspSource = new OnlineTSPSource("http://tsa.example.com");
+        var otherTspSource = new OnlineTSPSource("http://tsa.example.org");
+
+        assertSame(SignatureServices.getPAdESService(tspSource), SignatureServices.getPAdESService(tspSource));
+        assertNotSame(SignatureServices.getPAdESService(tspSource), SignatureServices.getPAdESService(null));
+        assertNotSame(SignatureServices.getPAdESService(tspSource), SignatureServices.getPAdESService(otherTspSource));
+        assertNotSame(SignatureServices.getASiCWithXAdESService(tspSource), SignatureServices.getASiCWithCAdESService(tspSource));
+        assertNotSame(SignatureServices.getXAdESService(tspSource), SignatureServices.getXAdESService(null));
+    }
+
+    @Test
+    void testServicesOfReplacedTspSourceAreDropped() {
+        var tspSource = new OnlineTSPSource("http://tsa.example.com");
+        var replacement = new OnlineTSPSource("http://tsa.example.net");
+
+        var service = SignatureServices.getCAdESService(tspSource);
+        var withoutTimestamp = SignatureServices.getCAdESService(null);
+        SignatureServices.getCAdESService(replacement);
+
+        assertNotSame(service, SignatureServices.getCAdESService(tspSource));
+        assertSame(withoutTimestamp, SignatureServices.getCAdESService(null));
+    }
+}
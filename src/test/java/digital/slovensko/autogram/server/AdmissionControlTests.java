@@ -0,0 +1,135 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import digital.slovensko.autogram.core.Autogram;
+import digital.slovensko.autogram.core.Batch;
+import digital.slovensko.autogram.server.filters.AdmissionFilter;
+import digital.slovensko.autogram.ui.SupportedLanguage;
+
+public class AdmissionControlTests {
+
+    @Test
+    public void testLimitsPendingJobsPerOrigin() {
+        var admissionControl = new AdmissionControl(10, 2);
+
+        var first = admissionControl.tryAdmit("https://a.example");
+        assertNotNull(first);
+        assertNotNull(admissionControl.tryAdmit("https://a.example"));
+        assertNull(admissionControl.tryAdmit("https://a.example"));
+        assertNotNull(admissionControl.tryAdmit("https://b.example"));
+
+        first.release();
+        first.release();
+        assertEquals(2, admissionControl.getPendingJobsCount());
+        assertNotNull(admissionControl.tryAdmit("https://a.example"));
+    }
+
+    @Test
+    public void testLimitsPendingJobsInTotal() {
+        var admissionControl = new AdmissionControl(2, 2);
+
+        assertNotNull(admissionControl.tryAdmit("https://a.example"));
+        assertNotNull(admissionControl.tryAdmit("https://b.example"));
+        assertNull(admissionControl.tryAdmit("https://c.example"));
+        assertEquals(2, admissionControl.getPendingJobsCount());
+    }
+
+    @Test
+    public void testBatchJobsFromOneOriginAreNotLimited() throws Exception {
+        ErrorResponseBuilder.init(SupportedLanguage.ENGLISH.loadResources());
+        var concurrency = 6;
+        var submitted = new CountDownLatch(concurrency);
+        var autogram = mock(Autogram.class);
+        when(autogram.getBatch("batch")).thenReturn(mock(Batch.class));
+        doAnswer(invocation -> {
+            // like the batch pipeline, the call blocks until the document is signed
+            submitted.countDown();
+            submitted.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(autogram).batchSign(any(), eq("batch"));
+
+        var filters = List.<Filter>of(new AdmissionFilter(new AdmissionControl(8, 4), 5));
+        var endpoint = new SignEndpoint(autogram);
+        var exchanges = new ArrayList<HttpExchange>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                var exchange = exchange("{\"document\":{\"content\":\"hello\"},\"parameters\":{\"level\":\"CAdES_BASELINE_B\","
+                        + "\"container\":\"ASiC_E\"},\"payloadMimeType\":\"text/plain\",\"batchId\":\"batch\"}");
+                exchanges.add(exchange);
+                executor.execute(() -> {
+                    try {
+                        new Filter.Chain(filters, endpoint).doFilter(exchange);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        }
+
+        assertEquals(0, submitted.getCount());
+        for (var exchange : exchanges)
+            verify(exchange, never()).sendResponseHeaders(eq(429), anyLong());
+    }
+
+    @Test
+    public void testDialogJobsOverLimitAreRefused() throws Exception {
+        ErrorResponseBuilder.init(SupportedLanguage.ENGLISH.loadResources());
+        var admissionControl = new AdmissionControl(8, 1);
+        // the only slot of the origin is taken by a job waiting for the user
+        admissionControl.tryAdmit("https://a.example");
+
+        var exchange = exchange("{\"document\":{\"content\":\"hello\"},\"parameters\":{\"level\":\"CAdES_BASELINE_B\","
+                + "\"container\":\"ASiC_E\"},\"payloadMimeType\":\"text/plain\"}");
+        new Filter.Chain(List.of(new AdmissionFilter(admissionControl, 5)), new SignEndpoint(mock(Autogram.class))).doFilter(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(429), anyLong());
+        assertEquals("5", exchange.getResponseHeaders().getFirst("Retry-After"));
+        assertEquals(1, admissionControl.getPendingJobsCount());
+    }
+
+    private static HttpExchange exchange(String body) throws IOException {
+        var headers = new Headers();
+        headers.add("Origin", "https://a.example");
+        var attributes = new ConcurrentHashMap<String, Object>();
+        var exchange = mock(HttpExchange.class);
+        when(exchange.getRequestMethod()).thenReturn("POST");
+        when(exchange.getRequestHeaders()).thenReturn(headers);
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseBody()).thenReturn(new ByteArrayOutputStream());
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(exchange).setAttribute(anyString(), any());
+        when(exchange.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+        return exchange;
+    }
+}
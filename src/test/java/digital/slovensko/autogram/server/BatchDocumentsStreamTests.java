@@ -0,0 +1,76 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import digital.slovensko.autogram.core.Autogram;
+import digital.slovensko.autogram.core.Batch;
+import digital.slovensko.autogram.core.SigningJob;
+import digital.slovensko.autogram.core.SigningKey;
+import eu.europa.esig.dss.model.FileDocument;
+import eu.europa.esig.dss.token.Pkcs12SignatureToken;
+
+public class BatchDocumentsStreamTests {
+
+    @Test
+    public void testSpilledDocumentIsKeptUntilItsLineIsWritten() throws IOException {
+        var token = new Pkcs12SignatureToken(Objects.requireNonNull(BatchDocumentsStreamTests.class.getResource("../test.keystore")).getFile(),
+                new KeyStore.PasswordProtection("".toCharArray()));
+        var key = new SigningKey(token, token.getKeys().getFirst());
+
+        var file = new File[1];
+        var autogram = mock(Autogram.class);
+        when(autogram.getBatch("batch")).thenReturn(mock(Batch.class));
+        when(autogram.batchSignAsync(any(), eq("batch"))).thenAnswer(invocation -> {
+            SigningJob job = invocation.getArgument(0);
+            var prepared = job.prepareSignature(key);
+            var signedDocument = job.completeSignature(prepared, job.signWithToken(key, prepared));
+            file[0] = ((FileDocument) signedDocument).getFile();
+            job.respond(signedDocument, key);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // the signed container is above the default document.spillThreshold of 8 MiB
+        var bytes = new byte[9 * 1024 * 1024];
+        new Random(42).nextBytes(bytes);
+        var request = "{\"document\":{\"filename\":\"scan.bin\",\"content\":\"" + Base64.getEncoder().encodeToString(bytes)
+                + "\"},\"parameters\":{\"level\":\"CAdES_BASELINE_B\",\"container\":\"ASiC_E\"},"
+                + "\"payloadMimeType\":\"application/octet-stream;base64\"}\n";
+        var response = new ByteArrayOutputStream();
+        var exchange = mock(HttpExchange.class);
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)));
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseBody()).thenReturn(response);
+
+        new BatchDocumentsStream(autogram, "batch").stream(exchange);
+
+        var line = JsonParser.parseString(response.toString(StandardCharsets.UTF_8).trim()).getAsJsonObject();
+        assertEquals(200, line.get("status").getAsInt());
+        var content = Base64.getDecoder().decode(line.getAsJsonObject("body").get("content").getAsString());
+        assertTrue(content.length > bytes.length);
+        // deleted once the line has been written
+        assertFalse(file[0].exists());
+    }
+}
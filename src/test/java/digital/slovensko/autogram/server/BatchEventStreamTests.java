@@ -0,0 +1,41 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import digital.slovensko.autogram.core.Batch;
+
+public class BatchEventStreamTests {
+
+    @Test
+    public void testStreamOfEndedBatchEndsRightAway() {
+        var batch = new Batch(2);
+        batch.onJobSuccess();
+        batch.end();
+        var exchange = mock(HttpExchange.class);
+        var body = new ByteArrayOutputStream();
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseBody()).thenReturn(body);
+
+        // no keepalives until the batch expires, the stream is answered and closed
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> new BatchEventStream(batch, "batch").stream(exchange));
+
+        var events = body.toString(StandardCharsets.UTF_8);
+        assertTrue(events.startsWith("event: end\n"), events);
+        assertFalse(events.contains("keepalive") || events.contains("event: progress"), events);
+        verify(exchange).close();
+    }
+}
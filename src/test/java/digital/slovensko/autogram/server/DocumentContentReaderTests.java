@@ -0,0 +1,100 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+
+import digital.slovensko.autogram.util.SpillingOutputStream;
+
+public class DocumentContentReaderTests {
+
+    @Test
+    public void testContentIsTakenOutOfTheStream() throws IOException {
+        var reader = new DocumentContentReader(new StringReader(
+                "{\"document\":{\"filename\":\"a.txt\",\"content\":\"line\\n\\u00e9\\\"\"},\"parameters\":{\"content\":\"kept\"}}"));
+
+        var parsed = new Gson().fromJson(reader, JsonObject.class);
+        var content = reader.takeContent();
+
+        assertEquals("a.txt", parsed.getAsJsonObject("document").get("filename").getAsString());
+        assertEquals("null", parsed.getAsJsonObject("document").get("content").toString());
+        assertEquals("kept", parsed.getAsJsonObject("parameters").get("content").getAsString());
+        assertArrayEquals("line\né\"".getBytes(StandardCharsets.UTF_8), readAll(content));
+    }
+
+    @Test
+    public void testUnterminatedContentFails() {
+        var reader = new DocumentContentReader(new StringReader("{\"document\":{\"content\":\"abc"));
+
+        assertThrows(IOException.class, () -> reader.read(new char[64], 0, 64));
+    }
+
+    @Test
+    public void testSignRequestContentIsDecodedFromTheStream() throws IOException {
+        var bytes = new byte[300 * 1024];
+        new Random(42).nextBytes(bytes);
+        var request = "{\"document\":{\"filename\":\"scan.bin\",\"content\":\"" + Base64.getEncoder().encodeToString(bytes)
+                + "\"},\"payloadMimeType\":\"application/octet-stream;base64\"}";
+
+        var body = EndpointUtils.loadSignRequestFromExchange(exchange(request));
+
+        assertArrayEquals(bytes, body.getDocument().openStream().readAllBytes());
+        assertEquals("scan.bin", body.getDocument().getName());
+    }
+
+    @Test
+    public void testEachRequestOfStreamGetsItsOwnContent() throws IOException {
+        var request = "{\"document\":{\"content\":\"first\"},\"payloadMimeType\":\"text/plain\"}\n"
+                + "{\"document\":{\"filename\":\"digest.txt\",\"digest\":\"AA==\",\"digestAlgorithm\":\"SHA256\"}}\n"
+                + "{\"document\":{\"content\":\"third\"},\"payloadMimeType\":\"text/plain\"}\n";
+
+        var contents = new ArrayList<String>();
+        EndpointUtils.forEachSignRequest(exchange(request), body -> {
+            if (body.isDigestOnly()) {
+                contents.add(null);
+                return;
+            }
+
+            try (var in = body.getDocument().openStream()) {
+                contents.add(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        assertEquals(3, contents.size());
+        assertEquals("first", contents.get(0));
+        assertNull(contents.get(1));
+        assertEquals("third", contents.get(2));
+    }
+
+    private static HttpExchange exchange(String body) {
+        var exchange = mock(HttpExchange.class);
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        return exchange;
+    }
+
+    private static byte[] readAll(SpillingOutputStream content) throws IOException {
+        try (var in = content.toDocument(null, null).openStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.core.SignedDocument;
+import digital.slovensko.autogram.core.errors.AutogramException;
+import digital.slovensko.autogram.core.errors.SigningCanceledByUserException;
+import digital.slovensko.autogram.server.errors.IdempotencyKeyReusedException;
+import digital.slovensko.autogram.util.TemporaryDocuments;
+import eu.europa.esig.dss.asic.common.ZipUtils;
+import eu.europa.esig.dss.model.FileDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.spi.DSSUtils;
+
+public class IdempotencyStoreTests {
+
+    @Test
+    public void testRepeatedRequestJoinsFirstJob() {
+        var store = new IdempotencyStore(8, Duration.ofMinutes(1));
+        var first = new ServerJob();
+
+        assertNull(store.register(key("key"), "digest", first));
+        assertSame(first, store.register(key("key"), "digest", new ServerJob()));
+    }
+
+    @Test
+    public void testKeyCannotBeReusedForAnotherDocument() {
+        var store = new IdempotencyStore(8, Duration.ofMinutes(1));
+        store.register(key("key"), "digest", new ServerJob());
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> store.register(key("key"), "other", new ServerJob()));
+    }
+
+    @Test
+    public void testKeyIsScopedToOrigin() {
+        var store = new IdempotencyStore(8, Duration.ofMinutes(1));
+        store.register(key("key"), "digest", new ServerJob());
+
+        assertNull(store.register(new IdempotencyStore.Key("https://other.example.com", "key"), "digest", new ServerJob()));
+        assertNull(store.register(new IdempotencyStore.Key(null, "key"), "other", new ServerJob()));
+    }
+
+    @Test
+    public void testFailedJobIsForgotten() {
+        var store = new IdempotencyStore(8, Duration.ofMinutes(1));
+        var outcome = new ServerJob();
+        store.register(key("key"), "digest", outcome);
+
+        new IdempotentResponder(new NoopResponder(), store, key("key"), outcome).onDocumentSignFailed(new SigningCanceledByUserException());
+
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testOldestFinishedJobIsEvictedWhenFull() {
+        var store = new IdempotencyStore(2, Duration.ofMinutes(1));
+        var finished = new ServerJob();
+        store.register(key("finished"), "digest", finished);
+        store.register(key("pending"), "digest", new ServerJob());
+        finished.onDocumentSignFailed(new SigningCanceledByUserException());
+
+        var latest = new ServerJob();
+        assertNull(store.register(key("latest"), "digest", latest));
+        assertSame(latest, store.register(key("latest"), "digest", new ServerJob()));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testSpilledDocumentIsKeptForReplayUntilEvicted() {
+        var store = new IdempotencyStore(2, Duration.ofMinutes(1));
+        var outcome = new ServerJob();
+        store.register(key("key"), "digest", outcome);
+        var temporaryDocuments = new TemporaryDocuments();
+        var signedDocument = spilledDocument(temporaryDocuments);
+        var file = ((FileDocument) signedDocument.getDocument()).getFile();
+
+        new IdempotentResponder(new NoopResponder(), store, key("key"), outcome).onDocumentSigned(signedDocument);
+        // the signing job discards its documents once the responder has returned
+        temporaryDocuments.discard();
+        assertTrue(file.exists());
+
+        var replayed = new long[1];
+        store.register(key("key"), "digest", new ServerJob()).respondTo(new NoopResponder() {
+            @Override
+            public void onDocumentSigned(SignedDocument signedDocument) {
+                replayed[0] = DSSUtils.toByteArray(signedDocument.getDocument()).length;
+            }
+        });
+        assertEquals(file.length(), replayed[0]);
+
+        // the full store evicts the finished outcome
+        store.register(key("other"), "digest", new ServerJob());
+        store.register(key("latest"), "digest", new ServerJob());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testUnregisteredOutcomeDoesNotKeepDocument() {
+        var store = new IdempotencyStore(0, Duration.ofMinutes(1));
+        var outcome = new ServerJob();
+        store.register(key("key"), "digest", outcome);
+        var temporaryDocuments = new TemporaryDocuments();
+        var signedDocument = spilledDocument(temporaryDocuments);
+        var file = ((FileDocument) signedDocument.getDocument()).getFile();
+
+        new IdempotentResponder(new NoopResponder(), store, key("key"), outcome).onDocumentSigned(signedDocument);
+        temporaryDocuments.discard();
+
+        assertFalse(file.exists());
+    }
+
+    private static IdempotencyStore.Key key(String value) {
+        return new IdempotencyStore.Key("https://example.com", value);
+    }
+
+    // a signed document above the default document.spillThreshold of 8 MiB, as SigningJob hands it to the responder
+    private static SignedDocument spilledDocument(TemporaryDocuments temporaryDocuments) {
+        var bytes = new byte[9 * 1024 * 1024];
+        new Random(42).nextBytes(bytes);
+        try (var _ = temporaryDocuments.bind()) {
+            var container = ZipUtils.getInstance().createZipArchive(List.of(new InMemoryDocument(bytes, "scan.bin")), new Date(), null);
+            return new SignedDocument(container, null, temporaryDocuments);
+        }
+    }
+
+    private static class NoopResponder extends Responder {
+        @Override
+        public void onDocumentSigned(SignedDocument signedDocument) {
+        }
+
+        @Override
+        public void onDocumentSignFailed(AutogramException error) {
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import digital.slovensko.autogram.core.AutogramMimeType;
+import digital.slovensko.autogram.core.errors.SourceDoesNotExistException;
+import digital.slovensko.autogram.core.errors.TargetAlreadyExistsException;
+import digital.slovensko.autogram.server.dto.SignRequestBody;
+import digital.slovensko.autogram.server.errors.LocalFileAccessException;
+
+public class LocalFilesTests {
+    @TempDir
+    Path directory;
+
+    private Path allowed;
+    private Path document;
+    private LocalFiles localFiles;
+
+    @BeforeEach
+    public void createFiles() throws IOException {
+        allowed = Files.createDirectory(directory.resolve("allowed"));
+        document = Files.writeString(allowed.resolve("document.pdf"), "%PDF-1.4");
+        localFiles = new LocalFiles(List.of(allowed));
+    }
+
+    @Test
+    public void testSourceInAllowedDirectoryIsResolved() throws IOException {
+        assertEquals(document.toRealPath(), localFiles.resolveSource(document.toString()));
+    }
+
+    @Test
+    public void testSourceOutsideAllowedDirectoriesIsRefused() throws IOException {
+        var outside = Files.writeString(directory.resolve("secret.txt"), "secret");
+
+        assertThrows(LocalFileAccessException.class, () -> localFiles.resolveSource(outside.toString()));
+        assertThrows(LocalFileAccessException.class, () -> localFiles.resolveSource(allowed + "/../secret.txt"));
+        assertThrows(LocalFileAccessException.class, () -> localFiles.resolveSource("allowed/document.pdf"));
+    }
+
+    @Test
+    public void testLinkOutOfAllowedDirectoryIsRefused() throws IOException {
+        var outside = Files.writeString(directory.resolve("secret.txt"), "secret");
+        var link = Files.createSymbolicLink(allowed.resolve("link.txt"), outside);
+
+        assertThrows(LocalFileAccessException.class, () -> localFiles.resolveSource(link.toString()));
+    }
+
+    @Test
+    public void testMissingSourceIsReported() {
+        assertThrows(SourceDoesNotExistException.class, () -> localFiles.resolveSource(allowed.resolve("missing.pdf").toString()));
+        assertThrows(SourceDoesNotExistException.class, () -> localFiles.resolveSource(allowed.toString()));
+    }
+
+    @Test
+    public void testTargetIsNextToSourceByDefault() throws IOException {
+        var target = localFiles.resolveTarget(null, document.toRealPath());
+
+        assertEquals(allowed.toRealPath().resolve("document_signed.pdf"), target.getSaveFilePath(document.toRealPath(), true));
+    }
+
+    @Test
+    public void testTargetOutsideAllowedDirectoriesOrExistingIsRefused() {
+        assertThrows(LocalFileAccessException.class,
+                () -> localFiles.resolveTarget(directory.resolve("signed.pdf").toString(), document));
+        assertThrows(TargetAlreadyExistsException.class, () -> localFiles.resolveTarget(document.toString(), document));
+    }
+
+    @Test
+    public void testOnlyLocalRequestsWithoutOriginAreAccepted() throws IOException {
+        assertDoesNotThrow(() -> localFiles.checkRequest(mockExchange(InetAddress.getLoopbackAddress(), null)));
+        assertThrows(LocalFileAccessException.class,
+                () -> localFiles.checkRequest(mockExchange(InetAddress.getLoopbackAddress(), "https://example.com")));
+        assertThrows(LocalFileAccessException.class,
+                () -> localFiles.checkRequest(mockExchange(InetAddress.getByName("192.0.2.1"), null)));
+    }
+
+    @Test
+    public void testNoDirectoriesDisablesAccess() {
+        var disabled = new LocalFiles(List.of(directory.resolve("missing")));
+
+        assertFalse(disabled.isEnabled());
+        assertThrows(LocalFileAccessException.class,
+                () -> disabled.checkRequest(mockExchange(InetAddress.getLoopbackAddress(), null)));
+    }
+
+    @Test
+    public void testMimeTypeOfLocalFileIsDetected() throws IOException {
+        var text = Files.writeString(allowed.resolve("note.txt"), "hello");
+        var body = EndpointUtils.loadFromJson(new StringReader(
+                "{\"document\":{\"path\":\"" + text + "\"},\"parameters\":{\"level\":\"CAdES_BASELINE_B\",\"container\":\"ASiC_E\"}}"),
+                SignRequestBody.class);
+        body.attachFile(localFiles.resolveSource(body.getDocumentPath()).toFile());
+
+        assertDoesNotThrow(body::validateDocument);
+        assertEquals(AutogramMimeType.TEXT_WITH_CHARSET, body.getDocument().getMimeType());
+        assertEquals("note.txt", body.getDocument().getName());
+    }
+
+    private static HttpExchange mockExchange(InetAddress address, String origin) {
+        var exchange = mock(HttpExchange.class);
+        var headers = new Headers();
+        if (origin != null)
+            headers.add("Origin", origin);
+
+        when(exchange.getRemoteAddress()).thenReturn(new InetSocketAddress(address, 12345));
+        when(exchange.getRequestHeaders()).thenReturn(headers);
+        return exchange;
+    }
+}
@@ -0,0 +1,72 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import digital.slovensko.autogram.server.errors.MalformedBodyException;
+
+public class MultipartReaderTests {
+    private static final String BODY = "--xyz\r\n"
+            + "Content-Disposition: form-data; name=\"request\"\r\n"
+            + "Content-Type: application/json\r\n"
+            + "\r\n"
+            + "{\"payloadMimeType\":\"text/plain\"}\r\n"
+            + "--xyz\r\n"
+            + "Content-Disposition: form-data; name=\"document\"; filename=\"hello.txt\"\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "\r\n"
+            + "hello\r\n--xy\r\r\n-- world\r\n"
+            + "--xyz--\r\n";
+
+    @Test
+    public void testReadsParts() throws IOException {
+        var reader = new MultipartReader(new ByteArrayInputStream(BODY.getBytes(StandardCharsets.UTF_8)),
+                MultipartReader.getBoundary("multipart/form-data; boundary=xyz"));
+
+        assertTrue(reader.next());
+        assertEquals("request", reader.getName());
+        var request = new ByteArrayOutputStream();
+        reader.copyPart(request);
+        assertEquals("{\"payloadMimeType\":\"text/plain\"}", request.toString(StandardCharsets.UTF_8));
+
+        assertTrue(reader.next());
+        assertEquals("document", reader.getName());
+        assertEquals("hello.txt", reader.getFilename());
+        assertEquals("text/plain", reader.getContentType());
+        var document = new ByteArrayOutputStream();
+        reader.copyPart(document);
+        assertEquals("hello\r\n--xy\r\r\n-- world", document.toString(StandardCharsets.UTF_8));
+
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void testSkipsUnreadParts() throws IOException {
+        var reader = new MultipartReader(new ByteArrayInputStream(BODY.getBytes(StandardCharsets.UTF_8)), "xyz");
+
+        assertTrue(reader.next());
+        assertTrue(reader.next());
+        assertEquals("document", reader.getName());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void testTruncatedBodyThrows() {
+        var truncated = BODY.substring(0, BODY.length() - 12);
+
+        assertThrows(MalformedBodyException.class, () -> {
+            var reader = new MultipartReader(new ByteArrayInputStream(truncated.getBytes(StandardCharsets.UTF_8)), "xyz");
+            while (reader.next())
+                reader.copyPart(null);
+        });
+    }
+}
@@ -0,0 +1,121 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import digital.slovensko.autogram.core.Responder;
+import digital.slovensko.autogram.core.SignedDocument;
+import digital.slovensko.autogram.core.errors.AutogramException;
+import digital.slovensko.autogram.core.errors.SigningCanceledByUserException;
+import digital.slovensko.autogram.server.errors.JobNotFoundException;
+import digital.slovensko.autogram.util.TemporaryDocuments;
+import eu.europa.esig.dss.asic.common.ZipUtils;
+import eu.europa.esig.dss.model.FileDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.spi.DSSUtils;
+
+public class ServerJobsTests {
+
+    @Test
+    public void testPendingJobIsNotEvicted() {
+        var jobs = new ServerJobs(Duration.ZERO);
+        var job = new ServerJob();
+        jobs.add(job);
+
+        assertFalse(job.await(Duration.ofMillis(10)));
+        assertSame(job, jobs.get(job.getId()));
+    }
+
+    @Test
+    public void testFinishedJobIsEvictedAfterTtl() throws InterruptedException {
+        var jobs = new ServerJobs(Duration.ofMillis(1));
+        var job = new ServerJob();
+        jobs.add(job);
+
+        Thread.ofVirtual().start(() -> job.onDocumentSignFailed(new SigningCanceledByUserException()));
+        assertTrue(job.await(Duration.ofSeconds(5)));
+
+        Thread.sleep(10);
+        assertThrows(JobNotFoundException.class, () -> jobs.get(job.getId()));
+    }
+
+    @Test
+    public void testSpilledDocumentIsKeptUntilEvicted() throws InterruptedException {
+        var jobs = new ServerJobs(Duration.ofSeconds(2));
+        var job = new ServerJob();
+        jobs.add(job);
+        var temporaryDocuments = new TemporaryDocuments();
+        var signedDocument = spilledDocument(temporaryDocuments);
+        var file = ((FileDocument) signedDocument.getDocument()).getFile();
+
+        job.onDocumentSigned(signedDocument);
+        // the signing job discards its documents once the responder has returned
+        temporaryDocuments.discard();
+        assertTrue(file.exists());
+
+        job.respondTo(new Responder() {
+            @Override
+            public void onDocumentSigned(SignedDocument signedDocument) {
+                assertEquals(file.length(), DSSUtils.toByteArray(signedDocument.getDocument()).length);
+            }
+
+            @Override
+            public void onDocumentSignFailed(AutogramException error) {
+            }
+        });
+        assertTrue(file.exists());
+
+        awaitEviction(jobs);
+        assertThrows(JobNotFoundException.class, () -> jobs.get(job.getId()));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testFinishedJobIsEvictedWithoutFurtherRequests() throws InterruptedException {
+        var jobs = new ServerJobs(Duration.ofMillis(1));
+        var job = new ServerJob();
+        jobs.add(job);
+        var temporaryDocuments = new TemporaryDocuments();
+        var signedDocument = spilledDocument(temporaryDocuments);
+        var file = ((FileDocument) signedDocument.getDocument()).getFile();
+
+        job.onDocumentSigned(signedDocument);
+        temporaryDocuments.discard();
+
+        awaitEviction(jobs);
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testUnknownJobThrows() {
+        var jobs = new ServerJobs(Duration.ofMinutes(1));
+
+        assertThrows(JobNotFoundException.class, () -> jobs.get("unknown"));
+    }
+
+    private static void awaitEviction(ServerJobs jobs) throws InterruptedException {
+        for (int i = 0; i < 1000 && jobs.size() > 0; i++)
+            Thread.sleep(10);
+        assertEquals(0, jobs.size());
+    }
+
+    // a signed document above the default document.spillThreshold of 8 MiB, as SigningJob hands it to the responder
+    private static SignedDocument spilledDocument(TemporaryDocuments temporaryDocuments) {
+        var bytes = new byte[9 * 1024 * 1024];
+        new Random(42).nextBytes(bytes);
+        try (var _ = temporaryDocuments.bind()) {
+            var container = ZipUtils.getInstance().createZipArchive(List.of(new InMemoryDocument(bytes, "scan.bin")), new Date(), null);
+            return new SignedDocument(container, null, temporaryDocuments);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.google.gson.Gson;
+
+import digital.slovensko.autogram.server.dto.SignResponse;
+
+public class ServerResponderTests {
+    private static final String SIGNER = "CN=Ján \"Janko\" Hraško, SERIALNUMBER=PNOSK-1234567890, C=SK";
+    private static final String ISSUER = "CN=Disig \\\"Test\\\" CA, O=Disig a.s., C=SK ✓";
+
+    @ParameterizedTest
+    // empty, full groups of 3 bytes and remainders of 1 and 2 bytes, across the encoder's internal buffer
+    @ValueSource(ints = {0, 1, 2, 3, 4, 5, 8191, 8192, 8193, 300 * 1024 + 1})
+    public void testSignResponseRoundTrips(int length) throws IOException {
+        var document = new byte[length];
+        new Random(length).nextBytes(document);
+        var body = new ResponseBody();
+
+        ServerResponder.writeSignResponse(body, new ByteArrayInputStream(document), SIGNER, ISSUER);
+
+        // the envelope is written after the encoder has flushed its padding, into the body that is still open
+        assertFalse(body.closed);
+        var response = new Gson().fromJson(body.toString(StandardCharsets.UTF_8), SignResponse.class);
+        assertArrayEquals(document, Base64.getDecoder().decode(response.getContent()));
+        assertEquals(Base64.getEncoder().encodeToString(document), response.getContent());
+        assertEquals(SIGNER, response.getSignedBy());
+        assertEquals(ISSUER, response.getIssuedBy());
+    }
+
+    private static class ResponseBody extends ByteArrayOutputStream {
+        boolean closed = false;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (closed)
+                throw new IllegalStateException("Response body written after it was closed");
+
+            super.write(b, off, len);
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (closed)
+                throw new IllegalStateException("Response body written after it was closed");
+
+            super.write(b);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+public class StaticResourceTests {
+    private final StaticResource resource = StaticResource.load(StaticResource.class, "assets/swagger-ui-v5.11.0.css",
+            "text/css", "no-cache");
+
+    @Test
+    public void testAcceptEncodingNegotiation() {
+        assertTrue(StaticResource.accepts("gzip, deflate, br", "gzip"));
+        assertTrue(StaticResource.accepts("*", "gzip"));
+        assertFalse(StaticResource.accepts("gzip;q=0", "gzip"));
+        assertFalse(StaticResource.accepts("deflate", "gzip"));
+        assertFalse(StaticResource.accepts(null, "gzip"));
+        assertTrue(StaticResource.accepts("*;q=0, gzip", "gzip"));
+        assertFalse(StaticResource.accepts("*;q=0, gzip", "br"));
+        assertFalse(StaticResource.accepts("*, gzip;q=0", "gzip"));
+    }
+
+    @Test
+    public void testVariantsHaveDistinctEtags() throws IOException {
+        var identity = resource.selectVariant(null);
+        var gzip = resource.selectVariant("gzip, br");
+
+        assertNull(identity.encoding());
+        assertEquals("gzip", gzip.encoding());
+        assertNotEquals(identity.etag(), gzip.etag());
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gzip.content()))) {
+            assertArrayEquals(identity.content(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testIfNoneMatch() {
+        assertTrue(StaticResource.matches("\"a\", \"b\"", "\"b\""));
+        assertTrue(StaticResource.matches("W/\"b\"", "\"b\""));
+        assertTrue(StaticResource.matches("*", "\"b\""));
+        assertFalse(StaticResource.matches("\"a\"", "\"b\""));
+    }
+
+    @Test
+    public void testMatchingEtagIsAnsweredWithNotModified() throws IOException {
+        var etag = resource.selectVariant(null).etag();
+        var exchange = mockExchange(etag);
+
+        resource.respond(exchange);
+
+        verify(exchange).sendResponseHeaders(304, -1);
+        assertEquals(etag, exchange.getResponseHeaders().getFirst("ETag"));
+    }
+
+    @Test
+    public void testResponseHasKnownLength() throws IOException {
+        var exchange = mockExchange(null);
+
+        resource.respond(exchange);
+
+        var content = resource.selectVariant(null).content();
+        verify(exchange).sendResponseHeaders(200, content.length);
+        assertArrayEquals(content, ((ByteArrayOutputStream) exchange.getResponseBody()).toByteArray());
+    }
+
+    private static HttpExchange mockExchange(String ifNoneMatch) {
+        var exchange = mock(HttpExchange.class);
+        var requestHeaders = new Headers();
+        if (ifNoneMatch != null)
+            requestHeaders.add("If-None-Match", ifNoneMatch);
+
+        var responseHeaders = new Headers();
+        var body = new ByteArrayOutputStream();
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        when(exchange.getResponseHeaders()).thenReturn(responseHeaders);
+        when(exchange.getResponseBody()).thenReturn(body);
+        return exchange;
+    }
+}
@@ -0,0 +1,182 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import digital.slovensko.autogram.core.errors.ServerNotCreatedException;
+
+public class UnixSocketTransportTests {
+    @TempDir
+    Path directory;
+
+    private Path socket;
+    private ExecutorService executor;
+    private UnixSocketTransport transport;
+
+    @BeforeEach
+    public void startTransport() {
+        socket = directory.resolve("autogram.sock");
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        transport = new UnixSocketTransport(socket, executor);
+        transport.createContext("/echo", exchange -> {
+            var body = exchange.getRequestBody().readAllBytes();
+            try (exchange) {
+                exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+                exchange.getResponseBody().write(body);
+            }
+        }, List.of());
+        transport.createContext("/echo/stream", exchange -> {
+            try (exchange) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.getResponseBody().write("streamed".getBytes());
+            }
+        }, List.of());
+        transport.createContext("/later", exchange -> executor.execute(() -> {
+            try (exchange) {
+                // like an endpoint waiting for the user, the handler has returned long before
+                Thread.sleep(200);
+                exchange.sendResponseHeaders(200, 5);
+                exchange.getResponseBody().write("later".getBytes());
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }), List.of());
+        transport.start();
+    }
+
+    @AfterEach
+    public void stopTransport() {
+        transport.stop();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSocketIsAccessibleByOwnerOnly() throws IOException {
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+    }
+
+    @Test
+    public void testRequestsShareConnection() throws IOException {
+        try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            var out = Channels.newOutputStream(channel);
+            var in = Channels.newInputStream(channel);
+
+            out.write("POST /echo HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readResponse(in).endsWith("\r\n\r\nhello"));
+
+            out.write("POST /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n3\r\nabc\r\n2\r\nde\r\n0\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readResponse(in).endsWith("\r\n\r\nabcde"));
+        }
+    }
+
+    @Test
+    public void testResponseFromAnotherThreadKeepsConnection() throws IOException {
+        try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            var out = Channels.newOutputStream(channel);
+            var in = Channels.newInputStream(channel);
+
+            out.write("GET /later HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readResponse(in).endsWith("\r\n\r\nlater"));
+
+            out.write("POST /echo HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readResponse(in).endsWith("\r\n\r\nhello"));
+        }
+    }
+
+    @Test
+    public void testLongestContextMatchesAndUnknownLengthIsChunked() throws IOException {
+        try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            Channels.newOutputStream(channel).write("GET /echo/stream HTTP/1.1\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+
+            var response = new String(Channels.newInputStream(channel).readAllBytes(), StandardCharsets.US_ASCII);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"));
+            assertTrue(response.endsWith("\r\n\r\n8\r\nstreamed\r\n0\r\n\r\n"));
+        }
+    }
+
+    @Test
+    public void testUnknownPathIsNotFound() throws IOException {
+        try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            Channels.newOutputStream(channel).write("GET /missing HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+            assertTrue(readResponse(Channels.newInputStream(channel)).startsWith("HTTP/1.1 404 Not Found\r\n"));
+        }
+    }
+
+    @Test
+    public void testFileAtSocketPathIsNotDeleted() throws IOException {
+        var file = Files.writeString(directory.resolve("document.txt"), "keep me");
+
+        assertThrows(ServerNotCreatedException.class, () -> new UnixSocketTransport(file, executor));
+        assertEquals("keep me", Files.readString(file));
+    }
+
+    @Test
+    public void testStopKeepsReplacedSocketPath() throws IOException {
+        Files.delete(socket);
+        Files.writeString(socket, "not ours");
+
+        transport.stop();
+
+        assertEquals("not ours", Files.readString(socket));
+    }
+
+    @Test
+    public void testLeftoverSocketIsReplaced() throws IOException {
+        var leftover = directory.resolve("leftover.sock");
+        try (var channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.bind(UnixDomainSocketAddress.of(leftover));
+        }
+
+        var replacement = new UnixSocketTransport(leftover, executor);
+        replacement.stop();
+
+        assertFalse(Files.exists(leftover));
+        try (var files = Files.list(directory)) {
+            // the private directory used for binding is gone as well
+            assertEquals(List.of(socket.getFileName()), files.map(Path::getFileName).toList());
+        }
+    }
+
+    // reads a response with Content-Length
+    private static String readResponse(InputStream in) throws IOException {
+        var head = new ByteArrayOutputStream();
+        while (!head.toString(StandardCharsets.US_ASCII).endsWith("\r\n\r\n"))
+            head.write(in.read());
+
+        var text = head.toString(StandardCharsets.US_ASCII);
+        var matcher = Pattern.compile("Content-length: (\\d+)", Pattern.CASE_INSENSITIVE).matcher(text);
+        var length = matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+        return text + new String(in.readNBytes(length), StandardCharsets.US_ASCII);
+    }
+}
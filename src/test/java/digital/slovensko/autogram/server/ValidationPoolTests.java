@@ -0,0 +1,64 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import digital.slovensko.autogram.server.errors.ServerBusyException;
+import digital.slovensko.autogram.server.errors.ValidationTimeoutException;
+
+public class ValidationPoolTests {
+    private final ValidationPool pool = new ValidationPool(1, 1, Duration.ofMillis(200));
+
+    @AfterEach
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testResultIsReturned() {
+        assertEquals("valid", pool.run(() -> "valid"));
+    }
+
+    @Test
+    public void testFailureIsRethrown() {
+        assertThrows(IllegalStateException.class, () -> pool.run(() -> {
+            throw new IllegalStateException();
+        }));
+    }
+
+    @Test
+    public void testSlowValidationTimesOut() {
+        assertThrows(ValidationTimeoutException.class, () -> pool.run(() -> {
+            Thread.sleep(5000);
+            return null;
+        }));
+    }
+
+    @Test
+    public void testFullQueueIsRefused() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            // one document is validated, one waits in the queue
+            clients.submit(() -> pool.run(() -> {
+                started.countDown();
+                release.await();
+                return null;
+            }));
+            started.await();
+            clients.submit(() -> pool.run(() -> null));
+            while (pool.getQueuedCount() == 0)
+                Thread.sleep(10);
+
+            assertThrows(ServerBusyException.class, () -> pool.run(() -> null));
+            release.countDown();
+        }
+    }
+}
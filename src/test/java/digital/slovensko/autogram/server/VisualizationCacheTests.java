@@ -0,0 +1,66 @@
+package digital.slovensko.autogram.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import digital.slovensko.autogram.server.dto.VisualizationResponseBody;
+
+public class VisualizationCacheTests {
+    private final VisualizationCache cache = new VisualizationCache(10);
+
+    @Test
+    public void testKeyIncludesTransformationAndDpi() {
+        cache.put(new VisualizationCache.Key("doc", "xslt", 100), text("abc"));
+
+        assertNotNull(cache.get(new VisualizationCache.Key("doc", "xslt", 100)));
+        assertNull(cache.get(new VisualizationCache.Key("doc", "other", 100)));
+        assertNull(cache.get(new VisualizationCache.Key("doc", "xslt", 200)));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        var first = new VisualizationCache.Key("first", "", 100);
+        var second = new VisualizationCache.Key("second", "", 100);
+        var third = new VisualizationCache.Key("third", "", 100);
+        cache.put(first, text("1234"));
+        cache.put(second, text("1234"));
+        cache.get(first);
+        cache.put(third, pdf("12", "34"));
+
+        assertNotNull(cache.get(first));
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(third));
+        assertEquals(8, cache.size());
+    }
+
+    @Test
+    public void testReplacedEntryIsNotCountedTwice() {
+        var key = new VisualizationCache.Key("doc", "", 100);
+        cache.put(key, text("1234"));
+        cache.put(key, text("123456"));
+
+        assertEquals(6, cache.size());
+    }
+
+    @Test
+    public void testVisualizationLargerThanCacheIsNotKept() {
+        var key = new VisualizationCache.Key("doc", "", 100);
+        cache.put(key, text("12345678901"));
+
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    private static VisualizationResponseBody text(String content) {
+        return new VisualizationResponseBody("TEXT", "text/plain", content, null);
+    }
+
+    private static VisualizationResponseBody pdf(String... pages) {
+        return new VisualizationResponseBody("PDF", "image/png", null, List.of(pages));
+    }
+}
@@ -1,15 +1,25 @@
 package digital.slovensko.autogram.server.dto;
 
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
 import digital.slovensko.autogram.core.errors.TransformationParsingErrorException;
 import digital.slovensko.autogram.core.errors.XMLValidationException;
+import digital.slovensko.autogram.server.EndpointUtils;
 import digital.slovensko.autogram.server.errors.MalformedBodyException;
+import digital.slovensko.autogram.server.errors.RequestValidationException;
+import digital.slovensko.autogram.util.PDFUtils;
 import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.enumerations.MimeTypeEnum;
 import eu.europa.esig.dss.enumerations.SignatureLevel;
+import eu.europa.esig.dss.enumerations.SignaturePackaging;
+import eu.europa.esig.dss.model.DigestDocument;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
 class SignRequestBodyTest {
@@ -1456,4 +1466,150 @@ class SignRequestBodyTest {
 
         Assertions.assertDoesNotThrow(() -> {signRequestBody.getParameters(null, true);});
     }
+
+    @Test
+    void testDocumentIsDecodedOncePerRequest() throws IOException {
+        var xmlContent = this.getClass().getResourceAsStream("xdc.xml").readAllBytes();
+        var document = new Document(Base64.getEncoder().encodeToString(xmlContent));
+
+        var signingParameters = new ServerSigningParameters(
+                ServerSigningParameters.LocalSignatureLevel.XAdES_BASELINE_B,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                false,
+                null,
+                false,
+                false,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null);
+
+        var payloadMimeType = "application/vnd.gov.sk.xmldatacontainer+xml;base64";
+        var request = "{\"document\":" + new Gson().toJson(document) + ",\"parameters\":" + new Gson().toJson(signingParameters)
+                + ",\"payloadMimeType\":\"" + payloadMimeType + "\"}";
+        var exchange = Mockito.mock(HttpExchange.class);
+        Mockito.when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)));
+
+        try (var buffers = Mockito.mockStatic(SignRequestBody.class, Mockito.CALLS_REAL_METHODS)) {
+            // the way requests come in, the encoded content is read off the stream and decoded when first needed
+            var signRequestBody = EndpointUtils.loadSignRequestFromExchange(exchange);
+            signRequestBody.validateDocument();
+            signRequestBody.validateSigningParameters();
+            signRequestBody.getParameters(null, true);
+            var first = signRequestBody.getDocument();
+            var second = signRequestBody.getDocument();
+
+            // one buffer for the encoded content, one for the decoded document
+            buffers.verify(SignRequestBody::createContentBuffer, Mockito.times(2));
+            Assertions.assertNotSame(first, second);
+            Assertions.assertArrayEquals(xmlContent, first.openStream().readAllBytes());
+            Assertions.assertSame(first.getDigestValue(DigestAlgorithm.SHA256), second.getDigestValue(DigestAlgorithm.SHA256));
+        }
+    }
+
+    @Test
+    void testDocumentIsDecodedOnceWhenBuiltDirectly() throws IOException {
+        var xmlContent = this.getClass().getResourceAsStream("xdc.xml").readAllBytes();
+        var document = new Document(Base64.getEncoder().encodeToString(xmlContent));
+        SignRequestBody signRequestBody = Mockito.spy(new SignRequestBody(document, null, "application/xml;base64"));
+
+        var first = signRequestBody.getDocument();
+        var second = signRequestBody.getDocument();
+
+        Mockito.verify(signRequestBody, Mockito.times(1)).decodeDocumentContent(Mockito.any());
+        Assertions.assertNotSame(first, second);
+        Assertions.assertArrayEquals(xmlContent, first.openStream().readAllBytes());
+        Assertions.assertSame(first.getDigestValue(DigestAlgorithm.SHA256), second.getDigestValue(DigestAlgorithm.SHA256));
+    }
+
+    @Test
+    void testDigestOnlyDetachedSignatureIsAccepted() {
+        var signRequestBody = new SignRequestBody(digestOnlyDocument("SHA256"),
+                digestOnlyParameters(ServerSigningParameters.LocalSignatureLevel.CAdES_BASELINE_B, SignaturePackaging.DETACHED), null);
+
+        Assertions.assertDoesNotThrow(() -> {
+            signRequestBody.validateDocument();
+            signRequestBody.validateSigningParameters();
+        });
+
+        var document = signRequestBody.getDocument();
+        Assertions.assertInstanceOf(DigestDocument.class, document);
+        Assertions.assertEquals("archive.zip", document.getName());
+        Assertions.assertDoesNotThrow(() -> {signRequestBody.getParameters(null, false);});
+    }
+
+    @Test
+    void testDigestOnlyRejectsSignaturesEmbeddingDocument() {
+        var enveloping = new SignRequestBody(digestOnlyDocument("SHA256"),
+                digestOnlyParameters(ServerSigningParameters.LocalSignatureLevel.XAdES_BASELINE_B, SignaturePackaging.ENVELOPING), null);
+        var pades = new SignRequestBody(digestOnlyDocument("SHA256"),
+                digestOnlyParameters(ServerSigningParameters.LocalSignatureLevel.PAdES_BASELINE_B, SignaturePackaging.DETACHED), null);
+
+        Assertions.assertThrows(RequestValidationException.class, enveloping::validateSigningParameters);
+        Assertions.assertThrows(RequestValidationException.class, pades::validateSigningParameters);
+    }
+
+    @Test
+    void testDigestOnlyRejectsInvalidDigest() {
+        var parameters = digestOnlyParameters(ServerSigningParameters.LocalSignatureLevel.CAdES_BASELINE_B, SignaturePackaging.DETACHED);
+        var wrongLength = new SignRequestBody(digestOnlyDocument("SHA512"), parameters, null);
+        var unknownAlgorithm = new SignRequestBody(digestOnlyDocument("SHA0"), parameters, null);
+        var otherAlgorithm = new SignRequestBody(new Document("archive.zip",
+                Base64.getEncoder().encodeToString(new byte[64]), "SHA512"), parameters, null);
+
+        Assertions.assertThrows(RequestValidationException.class, wrongLength::validateDocument);
+        Assertions.assertThrows(RequestValidationException.class, unknownAlgorithm::validateDocument);
+        Assertions.assertDoesNotThrow(otherAlgorithm::validateDocument);
+        Assertions.assertThrows(RequestValidationException.class, otherAlgorithm::validateSigningParameters);
+    }
+
+    @Test
+    void testDigestOnlyDocumentIsBinaryWhateverPayloadMimeType() {
+        var signRequestBody = new SignRequestBody(digestOnlyDocument("SHA256"),
+                digestOnlyParameters(ServerSigningParameters.LocalSignatureLevel.XAdES_BASELINE_B, SignaturePackaging.DETACHED),
+                "application/pdf");
+
+        Assertions.assertDoesNotThrow(() -> {
+            signRequestBody.validateDocument();
+            signRequestBody.validateSigningParameters();
+        });
+
+        var document = signRequestBody.getDocument();
+        Assertions.assertEquals(MimeTypeEnum.BINARY, document.getMimeType());
+        Assertions.assertFalse(PDFUtils.isPdfAndPasswordProtected(document));
+    }
+
+    @Test
+    void testDigestWithContentIsRejected() {
+        var document = new Gson().fromJson("{\"filename\":\"archive.zip\",\"content\":\"YXJjaGl2ZQ==\",\"digest\":\""
+                + Base64.getEncoder().encodeToString(new byte[32]) + "\",\"digestAlgorithm\":\"SHA256\"}", Document.class);
+        var signRequestBody = new SignRequestBody(document,
+                digestOnlyParameters(ServerSigningParameters.LocalSignatureLevel.CAdES_BASELINE_B, SignaturePackaging.DETACHED),
+                "application/octet-stream;base64");
+
+        Assertions.assertThrows(RequestValidationException.class, signRequestBody::validateDocument);
+    }
+
+    private static Document digestOnlyDocument(String digestAlgorithm) {
+        return new Document("archive.zip", Base64.getEncoder().encodeToString(new byte[32]), digestAlgorithm);
+    }
+
+    private static ServerSigningParameters digestOnlyParameters(ServerSigningParameters.LocalSignatureLevel level,
+            SignaturePackaging packaging) {
+        return new ServerSigningParameters(level, null, null, null, packaging, null, null, null, null, null, null,
+                null, null, false, null, false, false, null, null, null, null, null, null);
+    }
 }
@@ -0,0 +1,40 @@
+package digital.slovensko.autogram.util;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class MetricsTests {
+
+    @Test
+    public void testTimedStageIsExportedAsHistogram() {
+        try (var _ = Metrics.time("test_stage")) {
+            // nothing to do
+        }
+
+        var export = Metrics.export();
+        assertTrue(export.contains("autogram_stage_duration_seconds_bucket{stage=\"test_stage\",le=\"+Inf\"} 1\n"));
+        assertTrue(export.contains("autogram_stage_duration_seconds_count{stage=\"test_stage\"} 1\n"));
+    }
+
+    @Test
+    public void testCacheLookupsAreCountedByResult() {
+        Metrics.cacheMiss("test_cache");
+        Metrics.cacheHit("test_cache");
+        Metrics.cacheHit("test_cache");
+
+        var export = Metrics.export();
+        assertTrue(export.contains("autogram_cache_requests_total{cache=\"test_cache\",result=\"hit\"} 2\n"));
+        assertTrue(export.contains("autogram_cache_requests_total{cache=\"test_cache\",result=\"miss\"} 1\n"));
+    }
+
+    @Test
+    public void testGaugeIsReadOnExport() {
+        Metrics.registerGauge("test_gauge", "Gauge used in tests.", "queue=\"a\"", () -> 3);
+        Metrics.registerGauge("test_gauge", "Gauge used in tests.", "queue=\"a\"", () -> 5);
+
+        var export = Metrics.export();
+        assertTrue(export.contains("# TYPE test_gauge gauge\n"));
+        assertTrue(export.contains("test_gauge{queue=\"a\"} 5\n"));
+    }
+}
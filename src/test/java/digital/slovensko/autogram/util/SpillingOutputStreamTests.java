@@ -0,0 +1,68 @@
+package digital.slovensko.autogram.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import eu.europa.esig.dss.enumerations.MimeTypeEnum;
+import eu.europa.esig.dss.model.FileDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+
+public class SpillingOutputStreamTests {
+
+    @Test
+    public void testSmallContentStaysInMemory() throws IOException {
+        var out = new SpillingOutputStream(16);
+        out.write("hello".getBytes());
+        out.close();
+
+        assertFalse(out.isSpilled());
+        var document = out.toDocument("hello.txt", MimeTypeEnum.TEXT);
+        assertInstanceOf(InMemoryDocument.class, document);
+        assertArrayEquals("hello".getBytes(), document.openStream().readAllBytes());
+    }
+
+    @Test
+    public void testLargeContentSpillsToFileAndIsDiscarded() throws IOException {
+        var out = new SpillingOutputStream(4);
+        out.write("hel".getBytes());
+        out.write("lo world".getBytes());
+        out.close();
+
+        assertTrue(out.isSpilled());
+        var document = out.toDocument("hello.txt", MimeTypeEnum.TEXT);
+        assertInstanceOf(FileDocument.class, document);
+        assertArrayEquals("hello world".getBytes(), document.openStream().readAllBytes());
+
+        var file = ((FileDocument) document).getFile().toPath();
+        out.discard();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testOnlyOldLeftoversAreDeleted(@TempDir Path directory) throws IOException {
+        var now = Instant.now();
+        var old = Files.createFile(directory.resolve("autogram-1.tmp"));
+        Files.setLastModifiedTime(old, FileTime.from(now.minus(Duration.ofDays(2))));
+        var recent = Files.createFile(directory.resolve("autogram-2.tmp"));
+        var unrelated = Files.createFile(directory.resolve("other-3.tmp"));
+        Files.setLastModifiedTime(unrelated, FileTime.from(now.minus(Duration.ofDays(2))));
+
+        SpillingOutputStream.deleteLeftovers(directory, now.minus(Duration.ofDays(1)));
+
+        assertFalse(Files.exists(old));
+        assertTrue(Files.exists(recent));
+        assertTrue(Files.exists(unrelated));
+    }
+}
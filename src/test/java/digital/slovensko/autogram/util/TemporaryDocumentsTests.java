@@ -0,0 +1,83 @@
+package digital.slovensko.autogram.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import eu.europa.esig.dss.asic.common.ZipUtils;
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.FileDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+
+public class TemporaryDocumentsTests {
+    // above the default document.spillThreshold of 8 MiB even when compressed
+    private static final DSSDocument LARGE = new InMemoryDocument(randomBytes(9 * 1024 * 1024), "scan.bin");
+    private static final DSSDocument SMALL = new InMemoryDocument(new byte[1024], "note.bin");
+
+    @Test
+    public void testLargeDocumentIsSpilledAndDiscarded() throws IOException {
+        var temporaryDocuments = new TemporaryDocuments();
+        DSSDocument container;
+        try (var _ = temporaryDocuments.bind()) {
+            container = ZipUtils.getInstance().createZipArchive(List.of(LARGE), new Date(), null);
+        }
+
+        var file = assertInstanceOf(FileDocument.class, container).getFile();
+        assertTrue(file.exists());
+        var extracted = ZipUtils.getInstance().extractContainerContent(container).getFirst();
+        assertArrayEquals(LARGE.openStream().readAllBytes(), extracted.openStream().readAllBytes());
+
+        temporaryDocuments.discard();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testKeptDocumentIsDeletedOnLastRelease() {
+        var temporaryDocuments = new TemporaryDocuments();
+        DSSDocument container;
+        try (var _ = temporaryDocuments.bind()) {
+            container = ZipUtils.getInstance().createZipArchive(List.of(LARGE), new Date(), null);
+        }
+        var file = assertInstanceOf(FileDocument.class, container).getFile();
+
+        temporaryDocuments.keep();
+        temporaryDocuments.keep();
+        temporaryDocuments.discard();
+        temporaryDocuments.release();
+        assertTrue(file.exists());
+
+        temporaryDocuments.release();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testSmallDocumentStaysInMemory() {
+        var temporaryDocuments = new TemporaryDocuments();
+        try (var _ = temporaryDocuments.bind()) {
+            assertInstanceOf(InMemoryDocument.class, ZipUtils.getInstance().createZipArchive(List.of(SMALL), new Date(), null));
+        } finally {
+            temporaryDocuments.discard();
+        }
+    }
+
+    @Test
+    public void testDocumentsStayInMemoryWithoutScope() {
+        new TemporaryDocuments();
+
+        assertInstanceOf(InMemoryDocument.class, ZipUtils.getInstance().createZipArchive(List.of(LARGE), new Date(), null));
+    }
+
+    private static byte[] randomBytes(int size) {
+        var bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
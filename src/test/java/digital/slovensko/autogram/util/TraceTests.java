@@ -0,0 +1,32 @@
+package digital.slovensko.autogram.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TraceTests {
+
+    @Test
+    public void testRequestedIdIsKeptOnlyIfValid() {
+        assertEquals("portal-42", Trace.start("portal-42").getId());
+        assertNotEquals("bad id\r\n", Trace.start("bad id\r\n").getId());
+    }
+
+    @Test
+    public void testTimedStagesAreRecordedIntoBoundTrace() {
+        var trace = Trace.start(null);
+        try (var _ = trace.bind()) {
+            assertSame(trace, Trace.current());
+            try (var _ = Metrics.time("traced_stage")) {
+                // nothing to do
+            }
+        }
+
+        assertNull(Trace.current());
+        assertTrue(trace.toServerTiming().startsWith("traced_stage;dur="));
+    }
+}